@@ -6,10 +6,14 @@ import android.view.View;
 import android.widget.TextView;
 
 import com.maxml.datetime.DateTimeFactory;
+import com.maxml.datetime.fragment.OnDateTimeSetListener;
 
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements OnDateTimeSetListener {
+
+    private static final String STATE_MILLIS = "millis";
 
     private TextView mStartDate;
+    private DateTimeFactory mFactory;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -20,8 +24,28 @@ public class MainActivity extends AppCompatActivity {
         mStartDate.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                new DateTimeFactory(MainActivity.this, mStartDate).start();
+                mFactory = new DateTimeFactory(MainActivity.this, mStartDate);
+                mFactory.start();
             }
         });
+        // an open picker is restored with the activity, its result goes to a restored factory
+        if (savedInstanceState != null && savedInstanceState.containsKey(STATE_MILLIS)) {
+            mFactory = new DateTimeFactory(this, mStartDate, savedInstanceState.getLong(STATE_MILLIS));
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (mFactory != null) {
+            outState.putLong(STATE_MILLIS, mFactory.getMillis());
+        }
+    }
+
+    @Override
+    public void onDateTimeSet(String tag, long millis) {
+        if (mFactory != null) {
+            mFactory.onDateTimeSet(tag, millis);
+        }
     }
 }
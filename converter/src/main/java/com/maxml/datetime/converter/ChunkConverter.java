@@ -0,0 +1,165 @@
+package com.maxml.datetime.converter;
+
+import com.maxml.datetime.util.DateCodec;
+
+import java.util.Arrays;
+
+/**
+ * Rewrites the timestamp columns of a chunk of complete lines. Instances only hold settings, so
+ * chunks can be converted concurrently.
+ * <p>
+ * Fields are split at the delimiter, except inside double quotes. A quoted timestamp stays
+ * quoted. Quoted fields spanning lines are not supported. A row is rejected when a timestamp
+ * column is missing, cannot be parsed, or is outside the years 0000 to 9999; rejected rows are
+ * copied unchanged or dropped.
+ */
+final class ChunkConverter {
+
+    /**
+     * A converted chunk, the bytes to write and what happened to its rows.
+     */
+    static final class Result {
+
+        byte[] bytes;
+        int length;
+        long rows;
+        long rejected;
+    }
+
+    private final byte delimiter;
+    // indexed by 0 based column
+    private final boolean[] columns;
+    private final TimestampFormat from;
+    private final TimestampFormat to;
+    private final boolean dropRejected;
+
+    /**
+     * @param columns 0 based indices of the timestamp columns.
+     */
+    ChunkConverter(byte delimiter, int[] columns, TimestampFormat from, TimestampFormat to,
+                   boolean dropRejected) {
+        int max = 0;
+        for (int column : columns) {
+            max = Math.max(max, column);
+        }
+        this.columns = new boolean[max + 1];
+        for (int column : columns) {
+            this.columns[column] = true;
+        }
+        this.delimiter = delimiter;
+        this.from = from;
+        this.to = to;
+        this.dropRejected = dropRejected;
+    }
+
+    /**
+     * @param skipFirstLine copy the first line unchanged, e.g. a header.
+     */
+    Result convert(byte[] src, int offset, int length, boolean skipFirstLine) {
+        Result result = new Result();
+        result.bytes = new byte[length + length / 8 + 64];
+        int end = offset + length;
+        int lineStart = offset;
+        while (lineStart < end) {
+            int lineEnd = indexOf(src, (byte) '\n', lineStart, end);
+            int next = lineEnd < end ? lineEnd + 1 : end;
+            int contentEnd = lineEnd > lineStart && src[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+
+            ensureCapacity(result, next - lineStart + columns.length * (to.maxLength + 2));
+            if (skipFirstLine || contentEnd == lineStart) {
+                // header and blank lines are not rows
+                copy(src, lineStart, next, result);
+                skipFirstLine = false;
+            } else {
+                result.rows++;
+                int start = result.length;
+                if (!convertLine(src, lineStart, contentEnd, result)) {
+                    result.rejected++;
+                    result.length = start;
+                    if (!dropRejected) {
+                        copy(src, lineStart, next, result);
+                    }
+                    lineStart = next;
+                    continue;
+                }
+                copy(src, contentEnd, next, result);
+            }
+            lineStart = next;
+        }
+        return result;
+    }
+
+    // false if the line is rejected, its output must then be discarded
+    private boolean convertLine(byte[] src, int start, int end, Result out) {
+        int column = 0;
+        int fieldStart = start;
+        while (true) {
+            boolean quoted = fieldStart < end && src[fieldStart] == '"';
+            int fieldEnd = quoted ? closingQuote(src, fieldStart + 1, end) + 1 : fieldStart;
+            fieldEnd = indexOf(src, delimiter, fieldEnd, end);
+
+            if (column < columns.length && columns[column]) {
+                int valueStart = quoted ? fieldStart + 1 : fieldStart;
+                int valueEnd = quoted && fieldEnd - 1 > fieldStart && src[fieldEnd - 1] == '"'
+                        ? fieldEnd - 1 : fieldEnd;
+                long millis = from.parse(src, valueStart, valueEnd - valueStart);
+                if (millis == DateCodec.INVALID
+                        || millis < TimestampFormat.MIN_MILLIS || millis > TimestampFormat.MAX_MILLIS) {
+                    return false;
+                }
+                if (quoted) {
+                    out.bytes[out.length++] = '"';
+                }
+                out.length = to.format(millis, out.bytes, out.length);
+                if (quoted) {
+                    out.bytes[out.length++] = '"';
+                }
+            } else {
+                copy(src, fieldStart, fieldEnd, out);
+            }
+
+            if (fieldEnd == end) {
+                // every timestamp column must exist
+                return column >= columns.length - 1;
+            }
+            out.bytes[out.length++] = delimiter;
+            fieldStart = fieldEnd + 1;
+            column++;
+        }
+    }
+
+    // index of the quote closing a field, "" is an escaped quote, end if unclosed
+    private static int closingQuote(byte[] src, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (src[i] == '"') {
+                if (i + 1 < end && src[i + 1] == '"') {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+        }
+        return end - 1;
+    }
+
+    private static int indexOf(byte[] src, byte b, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (src[i] == b) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static void copy(byte[] src, int from, int to, Result out) {
+        int length = to - from;
+        System.arraycopy(src, from, out.bytes, out.length, length);
+        out.length += length;
+    }
+
+    private static void ensureCapacity(Result out, int extra) {
+        if (out.length + extra > out.bytes.length) {
+            out.bytes = Arrays.copyOf(out.bytes, Math.max(out.bytes.length * 2, out.length + extra));
+        }
+    }
+}
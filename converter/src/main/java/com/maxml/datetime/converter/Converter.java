@@ -0,0 +1,270 @@
+package com.maxml.datetime.converter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Converts timestamp columns of CSV and TSV files between the {@code DateFormatter} patterns
+ * and epoch millis, in one streaming pass.
+ * <p>
+ * The input is read through a channel in chunks of whole lines, the chunks are converted in
+ * parallel and written in input order. At most two chunks per thread are in memory, whatever
+ * the file size. Throughput and rejected rows are reported on stderr.
+ */
+public final class Converter {
+
+    private static final String USAGE = "usage: converter --from default|ui|millis --to default|ui|millis\n"
+            + "                 --columns 1[,2...] [--delimiter ,|tab|<char>] [--header]\n"
+            + "                 [--drop-rejected] [--threads n] [--chunk-kib n] [in|- [out|-]]\n"
+            + "Columns are 1 based. Reads stdin and writes stdout when no files are given.\n"
+            + "The delimiter defaults to tab for .tsv input and to ',' otherwise.";
+
+    private static final int DEFAULT_CHUNK_KIB = 1024;
+
+    private final ChunkConverter converter;
+    private final boolean header;
+    private final int threads;
+    private final int chunkSize;
+
+    private long bytesRead;
+    private long rows;
+    private long rejected;
+
+    Converter(ChunkConverter converter, boolean header, int threads, int chunkSize) {
+        this.converter = converter;
+        this.header = header;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    public static void main(String[] args) {
+        String in = null;
+        String out = null;
+        TimestampFormat from = null;
+        TimestampFormat to = null;
+        int[] columns = null;
+        Byte delimiter = null;
+        boolean header = false;
+        boolean dropRejected = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkKib = DEFAULT_CHUNK_KIB;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("--from".equals(arg)) {
+                    from = TimestampFormat.of(value(args, ++i));
+                } else if ("--to".equals(arg)) {
+                    to = TimestampFormat.of(value(args, ++i));
+                } else if ("--columns".equals(arg)) {
+                    columns = parseColumns(value(args, ++i));
+                } else if ("--delimiter".equals(arg)) {
+                    delimiter = parseDelimiter(value(args, ++i));
+                } else if ("--header".equals(arg)) {
+                    header = true;
+                } else if ("--drop-rejected".equals(arg)) {
+                    dropRejected = true;
+                } else if ("--threads".equals(arg)) {
+                    threads = positive(arg, value(args, ++i));
+                } else if ("--chunk-kib".equals(arg)) {
+                    chunkKib = positive(arg, value(args, ++i));
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else if (in == null) {
+                    in = arg;
+                } else if (out == null) {
+                    out = arg;
+                } else {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+            }
+            if (from == null || to == null || columns == null) {
+                throw new IllegalArgumentException("--from, --to and --columns are required");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        if (delimiter == null) {
+            delimiter = in != null && in.toLowerCase(Locale.US).endsWith(".tsv") ? (byte) '\t' : (byte) ',';
+        }
+
+        Converter converter = new Converter(new ChunkConverter(delimiter, columns, from, to, dropRejected),
+                header, threads, chunkKib * 1024);
+        long start = System.nanoTime();
+        try (ReadableByteChannel source = openInput(in);
+             WritableByteChannel sink = openOutput(out)) {
+            converter.run(source, sink);
+        } catch (IOException e) {
+            System.err.println("converter: " + e);
+            System.exit(1);
+        }
+        converter.report(System.nanoTime() - start);
+    }
+
+    /**
+     * Converts everything from the source to the sink, neither is closed.
+     */
+    void run(ReadableByteChannel source, WritableByteChannel sink) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // converted chunks in input order, bounded so that memory stays constant
+        ArrayDeque<Future<ChunkConverter.Result>> pending = new ArrayDeque<Future<ChunkConverter.Result>>();
+        try {
+            byte[] carry = new byte[0];
+            boolean first = true;
+            boolean eof = false;
+            while (!eof) {
+                // a new array per chunk, owned by its task
+                byte[] chunk = Arrays.copyOf(carry, Math.max(chunkSize, carry.length * 2));
+                ByteBuffer buffer = ByteBuffer.wrap(chunk);
+                buffer.position(carry.length);
+                while (buffer.hasRemaining()) {
+                    if (source.read(buffer) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                int filled = buffer.position();
+                bytesRead += filled - carry.length;
+
+                // convert up to the last complete line, a longer line grows the next chunk
+                int cut = filled;
+                if (!eof) {
+                    cut = lastIndexOf(chunk, (byte) '\n', filled) + 1;
+                }
+                carry = Arrays.copyOfRange(chunk, cut, filled);
+                if (cut == 0) {
+                    continue;
+                }
+
+                if (pending.size() >= 2 * threads) {
+                    write(pending.poll(), sink);
+                }
+                pending.add(executor.submit(task(chunk, cut, first && header)));
+                first = false;
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), sink);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    void report(long nanos) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        System.err.println(String.format(Locale.US,
+                "%d rows, %d rejected, %.1f MiB in %.2f s (%.1f MiB/s, %.0f rows/s)",
+                rows, rejected, bytesRead / 1048576.0, seconds,
+                bytesRead / 1048576.0 / seconds, rows / seconds));
+    }
+
+    private Callable<ChunkConverter.Result> task(final byte[] chunk, final int length,
+                                                 final boolean skipFirstLine) {
+        return new Callable<ChunkConverter.Result>() {
+            @Override
+            public ChunkConverter.Result call() {
+                return converter.convert(chunk, 0, length, skipFirstLine);
+            }
+        };
+    }
+
+    private void write(Future<ChunkConverter.Result> future, WritableByteChannel sink)
+            throws IOException {
+        ChunkConverter.Result result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Conversion failed", e.getCause());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(result.bytes, 0, result.length);
+        while (buffer.hasRemaining()) {
+            sink.write(buffer);
+        }
+        rows += result.rows;
+        rejected += result.rejected;
+    }
+
+    private static ReadableByteChannel openInput(String in) throws IOException {
+        if (in == null || "-".equals(in)) {
+            return Channels.newChannel(System.in);
+        }
+        return FileChannel.open(Paths.get(in), StandardOpenOption.READ);
+    }
+
+    private static WritableByteChannel openOutput(String out) throws IOException {
+        if (out == null || "-".equals(out)) {
+            return Channels.newChannel(System.out);
+        }
+        return FileChannel.open(Paths.get(out), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private static int lastIndexOf(byte[] src, byte b, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (src[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static int positive(String option, String value) {
+        int n;
+        try {
+            n = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            n = 0;
+        }
+        if (n <= 0) {
+            throw new IllegalArgumentException(option + " must be a positive number: " + value);
+        }
+        return n;
+    }
+
+    // 1 based on the command line, 0 based inside
+    private static int[] parseColumns(String value) {
+        String[] parts = value.split(",");
+        int[] columns = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            columns[i] = positive("--columns", parts[i].trim()) - 1;
+        }
+        return columns;
+    }
+
+    private static byte parseDelimiter(String value) {
+        if ("tab".equalsIgnoreCase(value) || "\\t".equals(value)) {
+            return '\t';
+        }
+        if (value.length() != 1 || value.charAt(0) >= 0x80 || value.charAt(0) == '"'
+                || value.charAt(0) == '\n' || value.charAt(0) == '\r') {
+            throw new IllegalArgumentException("The delimiter must be one ASCII char or tab: " + value);
+        }
+        return (byte) value.charAt(0);
+    }
+}
@@ -0,0 +1,125 @@
+package com.maxml.datetime.converter;
+
+import com.maxml.datetime.util.DateCodec;
+
+/**
+ * A timestamp representation in a delimited file, read and written as ASCII bytes.
+ */
+enum TimestampFormat {
+
+    /**
+     * {@code yyyy-MM-dd HH:mm:ss.SSS} in GMT, the {@code DateFormatter} default pattern.
+     */
+    DEFAULT(DateCodec.DEFAULT_LENGTH) {
+        @Override
+        long parse(byte[] src, int offset, int length) {
+            return length == DateCodec.DEFAULT_LENGTH
+                    ? DateCodec.parseDefault(src, offset) : DateCodec.INVALID;
+        }
+
+        @Override
+        int format(long millis, byte[] dst, int offset) {
+            return DateCodec.formatDefault(millis, dst, offset);
+        }
+    },
+
+    /**
+     * {@code yyyy-MM-dd HH:mm:ss.SSS z}, the {@code DateFormatter} UI pattern. Written in GMT.
+     */
+    UI(DateCodec.UI_LENGTH) {
+        @Override
+        long parse(byte[] src, int offset, int length) {
+            return DateCodec.parseUi(src, offset, length);
+        }
+
+        @Override
+        int format(long millis, byte[] dst, int offset) {
+            return DateCodec.formatUi(millis, dst, offset);
+        }
+    },
+
+    /**
+     * Epoch millis as a decimal number.
+     */
+    MILLIS(20) {
+        @Override
+        long parse(byte[] src, int offset, int length) {
+            int end = offset + length;
+            boolean negative = length > 0 && src[offset] == '-';
+            int i = negative ? offset + 1 : offset;
+            if (i == end || end - i > 18) {
+                // 18 digits cannot overflow, and are beyond year 9999 anyway
+                return DateCodec.INVALID;
+            }
+            long value = 0;
+            for (; i < end; i++) {
+                int digit = src[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return DateCodec.INVALID;
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        @Override
+        int format(long millis, byte[] dst, int offset) {
+            if (millis == 0) {
+                dst[offset] = '0';
+                return offset + 1;
+            }
+            int end = offset;
+            if (millis < 0) {
+                dst[end++] = '-';
+            }
+            int start = end;
+            // digits backwards, then reversed; negated so that Long.MIN_VALUE does not overflow
+            for (long rest = millis < 0 ? millis : -millis; rest != 0; rest /= 10) {
+                dst[end++] = (byte) ('0' - rest % 10);
+            }
+            for (int i = start, j = end - 1; i < j; i++, j--) {
+                byte b = dst[i];
+                dst[i] = dst[j];
+                dst[j] = b;
+            }
+            return end;
+        }
+    };
+
+    // 0000-01-01 00:00:00.000 and 9999-12-31 23:59:59.999 GMT, the range of 4 digit years
+    static final long MIN_MILLIS = -62167219200000L;
+    static final long MAX_MILLIS = 253402300799999L;
+
+    /**
+     * Bytes written by {@link #format(long, byte[], int)} at most.
+     */
+    final int maxLength;
+
+    TimestampFormat(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @return epoch millis of the {@code length} bytes at {@code offset}, or
+     * {@link DateCodec#INVALID}.
+     */
+    abstract long parse(byte[] src, int offset, int length);
+
+    /**
+     * @param millis between {@link #MIN_MILLIS} and {@link #MAX_MILLIS}.
+     * @return the offset after the written value.
+     */
+    abstract int format(long millis, byte[] dst, int offset);
+
+    /**
+     * @param name {@code default}, {@code ui} or {@code millis}.
+     */
+    static TimestampFormat of(String name) {
+        for (TimestampFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown format: " + name);
+    }
+}
@@ -0,0 +1,103 @@
+package com.maxml.datetime.converter;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChunkConverterTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static final ChunkConverter DEFAULT_TO_MILLIS = new ChunkConverter((byte) ',',
+            new int[]{1}, TimestampFormat.DEFAULT, TimestampFormat.MILLIS, false);
+
+    @Test
+    public void convertsTimestampColumn() {
+        assertConverts(DEFAULT_TO_MILLIS, "a,2016-07-27 15:48:06.158,b\n",
+                "a,1469634486158,b\n", 1, 0);
+    }
+
+    @Test
+    public void keepsQuotes() {
+        assertConverts(DEFAULT_TO_MILLIS, "\"x,\"\"y\"\"\",\"2016-07-27 15:48:06.158\"\n",
+                "\"x,\"\"y\"\"\",\"1469634486158\"\n", 1, 0);
+    }
+
+    @Test
+    public void keepsCrlf() {
+        assertConverts(DEFAULT_TO_MILLIS, "a,1970-01-01 00:00:00.001\r\nb,1970-01-01 00:00:00.002\r\n",
+                "a,1\r\nb,2\r\n", 2, 0);
+    }
+
+    @Test
+    public void convertsLastLineWithoutNewline() {
+        assertConverts(DEFAULT_TO_MILLIS, "a,1970-01-01 00:00:00.001", "a,1", 1, 0);
+    }
+
+    @Test
+    public void skipsHeaderAndBlankLines() {
+        ChunkConverter converter = new ChunkConverter((byte) '\t', new int[]{0},
+                TimestampFormat.MILLIS, TimestampFormat.UI, false);
+        String input = "time\tvalue\n\n0\t1\n";
+        ChunkConverter.Result result = convert(converter, input, true);
+        assertEquals("time\tvalue\n\n1970-01-01 00:00:00.000 GMT\t1\n", string(result));
+        assertEquals(1, result.rows);
+    }
+
+    @Test
+    public void copiesRejectedRows() {
+        assertConverts(DEFAULT_TO_MILLIS, "a,not a date\nb\nc,1970-01-01 00:00:00.001\n",
+                "a,not a date\nb\nc,1\n", 3, 2);
+    }
+
+    @Test
+    public void dropsRejectedRows() {
+        ChunkConverter converter = new ChunkConverter((byte) ',', new int[]{1},
+                TimestampFormat.DEFAULT, TimestampFormat.MILLIS, true);
+        assertConverts(converter, "a,not a date\r\nb\r\nc,1970-01-01 00:00:00.001\r\n",
+                "c,1\r\n", 3, 2);
+    }
+
+    @Test
+    public void rejectsYearsOutsideTheDefaultPattern() {
+        ChunkConverter converter = new ChunkConverter((byte) ',', new int[]{0},
+                TimestampFormat.MILLIS, TimestampFormat.DEFAULT, false);
+        assertConverts(converter, "253402300800000\n-1\n",
+                "253402300800000\n1969-12-31 23:59:59.999\n", 2, 1);
+    }
+
+    @Test
+    public void growsOutputForLongerTimestamps() {
+        ChunkConverter converter = new ChunkConverter((byte) ',', new int[]{0, 1, 2},
+                TimestampFormat.MILLIS, TimestampFormat.UI, false);
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            input.append("0,1,2\n");
+            expected.append("1970-01-01 00:00:00.000 GMT,1970-01-01 00:00:00.001 GMT,"
+                    + "1970-01-01 00:00:00.002 GMT\n");
+        }
+        assertConverts(converter, input.toString(), expected.toString(), 100, 0);
+    }
+
+    private static void assertConverts(ChunkConverter converter, String input, String expected,
+                                       long rows, long rejected) {
+        ChunkConverter.Result result = convert(converter, input, false);
+        assertEquals(expected, string(result));
+        assertEquals("rows", rows, result.rows);
+        assertEquals("rejected", rejected, result.rejected);
+    }
+
+    private static ChunkConverter.Result convert(ChunkConverter converter, String input,
+                                                 boolean skipFirstLine) {
+        // at an offset, to cover chunks that do not start at 0
+        byte[] bytes = ("garbage" + input).getBytes(ASCII);
+        return converter.convert(bytes, 7, bytes.length - 7, skipFirstLine);
+    }
+
+    private static String string(ChunkConverter.Result result) {
+        return new String(result.bytes, 0, result.length, ASCII);
+    }
+}
@@ -0,0 +1,75 @@
+package com.maxml.datetime.converter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConverterTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static final ChunkConverter MILLIS_TO_UI = new ChunkConverter((byte) ',',
+            new int[]{1}, TimestampFormat.MILLIS, TimestampFormat.UI, false);
+
+    @Test
+    public void headerLongerThanChunk_isCarriedAndSkipped() throws IOException {
+        String header = "id,a very long header that does not fit into one chunk\n";
+        String output = run(new Converter(MILLIS_TO_UI, true, 1, 16), header + "1,0\n2,1\n");
+        assertEquals(header + "1,1970-01-01 00:00:00.000 GMT\n2,1970-01-01 00:00:00.001 GMT\n", output);
+    }
+
+    @Test
+    public void lineLongerThanChunk_isCarried() throws IOException {
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            padding.append('x');
+        }
+        String output = run(new Converter(MILLIS_TO_UI, false, 2, 8),
+                "1,0\n" + padding + ",1\n3,2");
+        assertEquals("1,1970-01-01 00:00:00.000 GMT\n" + padding
+                + ",1970-01-01 00:00:00.001 GMT\n3,1970-01-01 00:00:00.002 GMT", output);
+    }
+
+    @Test
+    public void threads_doNotChangeOutput() throws IOException {
+        StringBuilder input = new StringBuilder("id,time\n");
+        for (int i = 0; i < 20000; i++) {
+            input.append(i).append(',');
+            // every 97th row is rejected
+            input.append(i % 97 == 0 ? "invalid" : Long.toString(i * 86400017L)).append("\r\n");
+        }
+        String expected = run(new Converter(MILLIS_TO_UI, true, 1, 1024), input.toString());
+        for (int threads : new int[]{2, 4, 8}) {
+            assertEquals("threads " + threads, expected,
+                    run(new Converter(MILLIS_TO_UI, true, threads, 1024), input.toString()));
+        }
+        // the single threaded run covers whole chunks too
+        assertEquals(expected, run(new Converter(MILLIS_TO_UI, true, 1, 1 << 20), input.toString()));
+    }
+
+    @Test
+    public void threads_dropRejectedRows() throws IOException {
+        ChunkConverter dropping = new ChunkConverter((byte) ',', new int[]{1},
+                TimestampFormat.MILLIS, TimestampFormat.DEFAULT, true);
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            input.append(i).append(',').append(i % 10 == 0 ? "x" : Integer.toString(i)).append('\n');
+        }
+        String output = run(new Converter(dropping, false, 4, 512), input.toString());
+        assertEquals(4500, output.split("\n").length);
+        assertEquals(output, run(new Converter(dropping, false, 1, 512), input.toString()));
+    }
+
+    private static String run(Converter converter, String input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.run(Channels.newChannel(new ByteArrayInputStream(input.getBytes(ASCII))),
+                Channels.newChannel(out));
+        return new String(out.toByteArray(), ASCII);
+    }
+}
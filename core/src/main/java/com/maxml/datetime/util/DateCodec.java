@@ -0,0 +1,306 @@
+package com.maxml.datetime.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses and formats the {@code DateFormatter} patterns directly on ASCII bytes, for payloads
+ * that arrive as {@code byte[]} or (direct) {@link ByteBuffer}s. No charset decoding step and no
+ * intermediate strings are involved.
+ * <p>
+ * Like {@code DateFormatter}, the default pattern {@code yyyy-MM-dd HH:mm:ss.SSS} is in GMT.
+ * The UI pattern {@code yyyy-MM-dd HH:mm:ss.SSS z} is written with a {@code GMT} suffix. It is
+ * read with one of these zones, case-sensitive, after a single space:
+ * <ul>
+ * <li>{@code GMT}, {@code UTC} or {@code UT}</li>
+ * <li>{@code GMT} and an offset of up to 23:59: {@code GMT+h}, {@code GMT+hh}, {@code GMT+hhmm},
+ * {@code GMT+h:mm} or {@code GMT+hh:mm}, each with {@code +} or {@code -}</li>
+ * <li>an RFC 822 offset, {@code +hhmm} or {@code -hhmm}</li>
+ * </ul>
+ * This differs from the {@code SimpleDateFormat} behind {@code DateFormatter} on the JVM, which
+ * rejects {@code UT}, {@code GMT+h}, {@code GMT+hh} and {@code GMT+hhmm} but reads zone names
+ * such as {@code PST} or {@code CET}. Zone names are rejected here, they are ambiguous and need
+ * the zone database. Fields are strict: exactly the pattern's digits and separators, and no
+ * out-of-range values such as Feb 30 or hour 24, which the lenient {@code SimpleDateFormat}
+ * rolls over.
+ * <p>
+ * Dates use the proleptic Gregorian calendar, which agrees with {@code DateFormatter} from
+ * 1582-10-15 on. Buffer positions and limits are never changed.
+ */
+public final class DateCodec {
+
+    /**
+     * Returned by the parse methods for malformed input.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    /**
+     * Length of a value in the default pattern, e.g. {@code 2016-07-27 15:48:06.158}.
+     */
+    public static final int DEFAULT_LENGTH = 23;
+
+    /**
+     * Length of a value written in the UI pattern, e.g. {@code 2016-07-27 15:48:06.158 GMT}.
+     */
+    public static final int UI_LENGTH = DEFAULT_LENGTH + 4;
+
+    private DateCodec() {
+    }
+
+    /**
+     * @return epoch millis of the {@link #DEFAULT_LENGTH} bytes at {@code offset}, or
+     * {@link #INVALID}.
+     */
+    public static long parseDefault(byte[] src, int offset) {
+        if (offset < 0 || offset > src.length - DEFAULT_LENGTH) {
+            return INVALID;
+        }
+        return parseLocal(src, null, offset);
+    }
+
+    /**
+     * @return epoch millis of the {@link #DEFAULT_LENGTH} bytes at absolute {@code index}, or
+     * {@link #INVALID}.
+     */
+    public static long parseDefault(ByteBuffer src, int index) {
+        if (index < 0 || index > src.limit() - DEFAULT_LENGTH) {
+            return INVALID;
+        }
+        return parseLocal(null, src, index);
+    }
+
+    /**
+     * @return epoch millis of the {@code length} bytes at {@code offset}, or {@link #INVALID}.
+     */
+    public static long parseUi(byte[] src, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > src.length - length) {
+            return INVALID;
+        }
+        return parseZoned(src, null, offset, length);
+    }
+
+    /**
+     * @return epoch millis of the {@code length} bytes at absolute {@code index}, or
+     * {@link #INVALID}.
+     */
+    public static long parseUi(ByteBuffer src, int index, int length) {
+        if (index < 0 || length < 0 || index > src.limit() - length) {
+            return INVALID;
+        }
+        return parseZoned(null, src, index, length);
+    }
+
+    /**
+     * Writes {@link #DEFAULT_LENGTH} bytes at {@code offset}.
+     *
+     * @return the offset after the written value.
+     */
+    public static int formatDefault(long millis, byte[] dst, int offset) {
+        checkBounds(offset, DEFAULT_LENGTH, dst.length);
+        return formatLocal(millis, dst, null, offset);
+    }
+
+    /**
+     * Writes {@link #DEFAULT_LENGTH} bytes at absolute {@code index}.
+     *
+     * @return the index after the written value.
+     */
+    public static int formatDefault(long millis, ByteBuffer dst, int index) {
+        checkBounds(index, DEFAULT_LENGTH, dst.limit());
+        return formatLocal(millis, null, dst, index);
+    }
+
+    /**
+     * Writes {@link #UI_LENGTH} bytes at {@code offset}.
+     *
+     * @return the offset after the written value.
+     */
+    public static int formatUi(long millis, byte[] dst, int offset) {
+        checkBounds(offset, UI_LENGTH, dst.length);
+        return formatZone(dst, null, formatLocal(millis, dst, null, offset));
+    }
+
+    /**
+     * Writes {@link #UI_LENGTH} bytes at absolute {@code index}.
+     *
+     * @return the index after the written value.
+     */
+    public static int formatUi(long millis, ByteBuffer dst, int index) {
+        checkBounds(index, UI_LENGTH, dst.limit());
+        return formatZone(null, dst, formatLocal(millis, null, dst, index));
+    }
+
+    // exactly one of array and buffer is set
+
+    private static long parseLocal(byte[] array, ByteBuffer buffer, int i) {
+        int year = digits(array, buffer, i, 4);
+        int month = digits(array, buffer, i + 5, 2);
+        int day = digits(array, buffer, i + 8, 2);
+        int hour = digits(array, buffer, i + 11, 2);
+        int minute = digits(array, buffer, i + 14, 2);
+        int second = digits(array, buffer, i + 17, 2);
+        int millis = digits(array, buffer, i + 20, 3);
+        if ((year | month | day | hour | minute | second | millis) < 0
+                || at(array, buffer, i + 4) != '-' || at(array, buffer, i + 7) != '-'
+                || at(array, buffer, i + 10) != ' ' || at(array, buffer, i + 13) != ':'
+                || at(array, buffer, i + 16) != ':' || at(array, buffer, i + 19) != '.'
+                || month < 1 || month > 12 || day < 1 || day > DateMath.lengthOfMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            return INVALID;
+        }
+        return DateMath.daysFromCivil(year, month, day) * DateMath.MILLIS_PER_DAY
+                + hour * DateMath.MILLIS_PER_HOUR
+                + minute * DateMath.MILLIS_PER_MINUTE
+                + second * DateMath.MILLIS_PER_SECOND
+                + millis;
+    }
+
+    private static long parseZoned(byte[] array, ByteBuffer buffer, int i, int length) {
+        if (length < DEFAULT_LENGTH + 2 || at(array, buffer, i + DEFAULT_LENGTH) != ' ') {
+            return INVALID;
+        }
+        long local = parseLocal(array, buffer, i);
+        int offset = parseZone(array, buffer, i + DEFAULT_LENGTH + 1, i + length);
+        if (local == INVALID || offset == Integer.MIN_VALUE) {
+            return INVALID;
+        }
+        return local - offset * DateMath.MILLIS_PER_MINUTE;
+    }
+
+    /**
+     * @return the zone offset in minutes, or {@link Integer#MIN_VALUE}.
+     */
+    private static int parseZone(byte[] array, ByteBuffer buffer, int i, int end) {
+        int length = end - i;
+        if (length == 2 && at(array, buffer, i) == 'U' && at(array, buffer, i + 1) == 'T') {
+            return 0;
+        }
+        if (length == 3 && at(array, buffer, i) == 'U' && at(array, buffer, i + 1) == 'T'
+                && at(array, buffer, i + 2) == 'C') {
+            return 0;
+        }
+        if (length >= 3 && at(array, buffer, i) == 'G' && at(array, buffer, i + 1) == 'M'
+                && at(array, buffer, i + 2) == 'T') {
+            if (length == 3) {
+                return 0;
+            }
+            return parseGmtOffset(array, buffer, i + 3, end);
+        }
+        // RFC 822, e.g. +0300
+        if (length == 5) {
+            int sign = sign(at(array, buffer, i));
+            int hours = digits(array, buffer, i + 1, 2);
+            int minutes = digits(array, buffer, i + 3, 2);
+            if (sign != 0 && hours >= 0 && hours <= 23 && minutes >= 0 && minutes <= 59) {
+                return sign * (hours * 60 + minutes);
+            }
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    // GMT+h, GMT+hh, GMT+hhmm, GMT+h:mm, GMT+hh:mm
+    private static int parseGmtOffset(byte[] array, ByteBuffer buffer, int i, int end) {
+        int sign = sign(at(array, buffer, i));
+        int length = end - i - 1;
+        int hours;
+        int minutes = 0;
+        if (sign == 0) {
+            return Integer.MIN_VALUE;
+        }
+        if (length == 1 || length == 2) {
+            hours = digits(array, buffer, i + 1, length);
+        } else if (length == 4 && at(array, buffer, i + 2) == ':') {
+            hours = digits(array, buffer, i + 1, 1);
+            minutes = digits(array, buffer, i + 3, 2);
+        } else if (length == 4) {
+            hours = digits(array, buffer, i + 1, 2);
+            minutes = digits(array, buffer, i + 3, 2);
+        } else if (length == 5 && at(array, buffer, i + 3) == ':') {
+            hours = digits(array, buffer, i + 1, 2);
+            minutes = digits(array, buffer, i + 4, 2);
+        } else {
+            return Integer.MIN_VALUE;
+        }
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+            return Integer.MIN_VALUE;
+        }
+        return sign * (hours * 60 + minutes);
+    }
+
+    private static int formatLocal(long millis, byte[] array, ByteBuffer buffer, int i) {
+        long days = DateMath.floorDiv(millis, DateMath.MILLIS_PER_DAY);
+        int ofDay = (int) (millis - days * DateMath.MILLIS_PER_DAY);
+        int civil = DateMath.civilFromDays(days);
+        int year = DateMath.year(civil);
+        if (year < 0 || year > 9999) {
+            throw new IllegalArgumentException("Year out of range: " + year);
+        }
+
+        putDigits(array, buffer, i, year, 4);
+        put(array, buffer, i + 4, '-');
+        putDigits(array, buffer, i + 5, DateMath.month(civil), 2);
+        put(array, buffer, i + 7, '-');
+        putDigits(array, buffer, i + 8, DateMath.day(civil), 2);
+        put(array, buffer, i + 10, ' ');
+        putDigits(array, buffer, i + 11, (int) (ofDay / DateMath.MILLIS_PER_HOUR), 2);
+        put(array, buffer, i + 13, ':');
+        putDigits(array, buffer, i + 14, (int) (ofDay / DateMath.MILLIS_PER_MINUTE % 60), 2);
+        put(array, buffer, i + 16, ':');
+        putDigits(array, buffer, i + 17, (int) (ofDay / DateMath.MILLIS_PER_SECOND % 60), 2);
+        put(array, buffer, i + 19, '.');
+        putDigits(array, buffer, i + 20, ofDay % 1000, 3);
+        return i + DEFAULT_LENGTH;
+    }
+
+    private static int formatZone(byte[] array, ByteBuffer buffer, int i) {
+        put(array, buffer, i, ' ');
+        put(array, buffer, i + 1, 'G');
+        put(array, buffer, i + 2, 'M');
+        put(array, buffer, i + 3, 'T');
+        return i + 4;
+    }
+
+    private static int at(byte[] array, ByteBuffer buffer, int i) {
+        return array != null ? array[i] : buffer.get(i);
+    }
+
+    private static void put(byte[] array, ByteBuffer buffer, int i, char c) {
+        if (array != null) {
+            array[i] = (byte) c;
+        } else {
+            buffer.put(i, (byte) c);
+        }
+    }
+
+    /**
+     * @return the value of {@code count} ASCII digits, or -1.
+     */
+    private static int digits(byte[] array, ByteBuffer buffer, int i, int count) {
+        int value = 0;
+        for (int end = i + count; i < end; i++) {
+            int digit = at(array, buffer, i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void putDigits(byte[] array, ByteBuffer buffer, int i, int value, int count) {
+        for (int p = i + count - 1; p >= i; p--) {
+            put(array, buffer, p, (char) ('0' + value % 10));
+            value /= 10;
+        }
+    }
+
+    private static int sign(int c) {
+        return c == '+' ? 1 : c == '-' ? -1 : 0;
+    }
+
+    private static void checkBounds(int index, int length, int limit) {
+        if (index < 0 || index > limit - length) {
+            throw new IndexOutOfBoundsException("Need " + length + " bytes at " + index
+                    + ", limit " + limit);
+        }
+    }
+}
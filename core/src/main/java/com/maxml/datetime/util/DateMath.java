@@ -0,0 +1,217 @@
+package com.maxml.datetime.util;
+
+import java.util.Calendar;
+
+/**
+ * Date arithmetic on epoch millis without {@link Calendar}.
+ * <p>
+ * Civil dates are computed with integer algorithms in the proleptic Gregorian calendar, zone
+ * offsets come from a {@link ZoneOffsetCache}. Methods return primitives, do not allocate and
+ * are safe to call from any thread. Months are 0-11 like {@link Calendar#MONTH} and days of the
+ * week are {@link Calendar#SUNDAY} to {@link Calendar#SATURDAY}.
+ */
+public final class DateMath {
+
+    public static final long MILLIS_PER_SECOND = 1000L;
+    public static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+    public static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+    public static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    // 0000-03-01 to 1970-01-01
+    private static final long DAYS_0000_TO_1970 = 719468L;
+    private static final long DAYS_PER_ERA = 146097L;
+    // 1970-01-01 was a Thursday
+    private static final int EPOCH_DAY_OF_WEEK = Calendar.THURSDAY;
+
+    private DateMath() {
+    }
+
+    /**
+     * @return days since 1970-01-01 of the instant's local date.
+     */
+    public static long epochDay(long millis, ZoneOffsetCache zone) {
+        return floorDiv(zone.toLocal(millis), MILLIS_PER_DAY);
+    }
+
+    public static int year(long millis, ZoneOffsetCache zone) {
+        return year(civilFromDays(epochDay(millis, zone)));
+    }
+
+    /**
+     * @return the month, 0-11.
+     */
+    public static int month(long millis, ZoneOffsetCache zone) {
+        return month(civilFromDays(epochDay(millis, zone))) - 1;
+    }
+
+    public static int dayOfMonth(long millis, ZoneOffsetCache zone) {
+        return day(civilFromDays(epochDay(millis, zone)));
+    }
+
+    /**
+     * @return {@link Calendar#SUNDAY} to {@link Calendar#SATURDAY}.
+     */
+    public static int dayOfWeek(long millis, ZoneOffsetCache zone) {
+        return (int) floorMod(epochDay(millis, zone) + EPOCH_DAY_OF_WEEK - 1, 7) + 1;
+    }
+
+    /**
+     * @return millis since local midnight, i.e. the wall clock time.
+     */
+    public static int millisOfDay(long millis, ZoneOffsetCache zone) {
+        return (int) floorMod(zone.toLocal(millis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * @param month 0-11.
+     * @return the instant of the local date and time.
+     */
+    public static long toMillis(int year, int month, int dayOfMonth, int hourOfDay, int minute,
+                                int second, int millis, ZoneOffsetCache zone) {
+        long local = localMillis(daysFromCivil(year, month + 1, dayOfMonth), 0)
+                + hourOfDay * MILLIS_PER_HOUR + minute * MILLIS_PER_MINUTE
+                + second * MILLIS_PER_SECOND + millis;
+        return zone.toUtc(local);
+    }
+
+    /**
+     * @return the instant {@code days} local days later at the same wall clock time.
+     */
+    public static long plusDays(long millis, long days, ZoneOffsetCache zone) {
+        return zone.toUtc(zone.toLocal(millis) + days * MILLIS_PER_DAY);
+    }
+
+    /**
+     * @return the instant {@code months} later at the same wall clock time. The day of month is
+     * clamped to the length of the target month, e.g. Jan 31 + 1 month is Feb 28 or 29.
+     */
+    public static long plusMonths(long millis, long months, ZoneOffsetCache zone) {
+        long local = zone.toLocal(millis);
+        long day = floorDiv(local, MILLIS_PER_DAY);
+        int civil = civilFromDays(day);
+        long total = year(civil) * 12L + month(civil) - 1 + months;
+        int year = (int) floorDiv(total, 12);
+        int month = (int) floorMod(total, 12) + 1;
+        int dayOfMonth = Math.min(day(civil), lengthOfMonth(year, month));
+        return zone.toUtc(localMillis(daysFromCivil(year, month, dayOfMonth), local - day * MILLIS_PER_DAY));
+    }
+
+    public static long plusYears(long millis, long years, ZoneOffsetCache zone) {
+        return plusMonths(millis, years * 12, zone);
+    }
+
+    /**
+     * @return the number of local dates from the start's to the end's, negative if the end is
+     * earlier.
+     */
+    public static long daysBetween(long startMillis, long endMillis, ZoneOffsetCache zone) {
+        return epochDay(endMillis, zone) - epochDay(startMillis, zone);
+    }
+
+    /**
+     * @return the first instant of the instant's local date.
+     */
+    public static long startOfDay(long millis, ZoneOffsetCache zone) {
+        return zone.toUtc(localMillis(epochDay(millis, zone), 0));
+    }
+
+    /**
+     * @param firstDayOfWeek {@link Calendar#SUNDAY} to {@link Calendar#SATURDAY}.
+     * @return the first instant of the week containing the instant.
+     */
+    public static long startOfWeek(long millis, int firstDayOfWeek, ZoneOffsetCache zone) {
+        long day = epochDay(millis, zone);
+        long sinceWeekStart = floorMod(day + EPOCH_DAY_OF_WEEK - firstDayOfWeek, 7);
+        return zone.toUtc(localMillis(day - sinceWeekStart, 0));
+    }
+
+    /**
+     * @return the first instant of the instant's local month.
+     */
+    public static long startOfMonth(long millis, ZoneOffsetCache zone) {
+        long day = epochDay(millis, zone);
+        return zone.toUtc(localMillis(day - day(civilFromDays(day)) + 1, 0));
+    }
+
+    public static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * @param month 0-11.
+     */
+    public static int daysInMonth(int year, int month) {
+        return lengthOfMonth(year, month + 1);
+    }
+
+    private static long localMillis(long epochDay, long millisOfDay) {
+        return epochDay * MILLIS_PER_DAY + millisOfDay;
+    }
+
+    // Package-private kernel, months are 1-12. A civil date is packed into one int as
+    // year << 9 | month << 5 | day.
+
+    static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
+    }
+
+    static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+
+    static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * DAYS_PER_ERA + doe - DAYS_0000_TO_1970;
+    }
+
+    static int civilFromDays(long epochDay) {
+        long z = epochDay + DAYS_0000_TO_1970;
+        long era = (z >= 0 ? z : z - DAYS_PER_ERA + 1) / DAYS_PER_ERA;
+        long doe = z - era * DAYS_PER_ERA;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        return pack(year, month, day);
+    }
+
+    static int pack(int year, int month, int day) {
+        return (year << 9) | (month << 5) | day;
+    }
+
+    static int year(int civil) {
+        return civil >> 9;
+    }
+
+    static int month(int civil) {
+        return (civil >> 5) & 0xF;
+    }
+
+    static int day(int civil) {
+        return civil & 0x1F;
+    }
+
+    static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
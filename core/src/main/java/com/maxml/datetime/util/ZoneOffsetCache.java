@@ -0,0 +1,139 @@
+package com.maxml.datetime.util;
+
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Memoizes {@link TimeZone#getOffset(long)} in 15 minute windows, so zone-aware arithmetic
+ * on epoch millis does not consult the zone rules for every value.
+ * <p>
+ * A window is only cached when the offset is constant across it, so results always match
+ * {@link TimeZone#getOffset(long)}. Instances are thread-safe.
+ */
+public final class ZoneOffsetCache {
+
+    private static final long WINDOW_MILLIS = 15 * DateMath.MILLIS_PER_MINUTE;
+    // windows beyond this do not fit into a packed entry, they go straight to the zone
+    private static final long MAX_WINDOW = 1L << 40;
+    private static final int SIZE = 256;
+    private static final int OFFSET_BITS = 20;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final int OFFSET_BIAS = 1 << (OFFSET_BITS - 1);
+    private static final long EMPTY = Long.MIN_VALUE;
+    // toUtc looks this far around a wall clock time for an offset transition. Offsets range
+    // from UTC-12 to UTC+14, so no transition moves the clock further, e.g. Pacific/Apia
+    // skipped 2011-12-30 entirely.
+    private static final long TRANSITION_WINDOW_MILLIS = 26 * DateMath.MILLIS_PER_HOUR;
+
+    // beyond this many distinct zones, of() stops sharing instead of growing the map
+    private static final int MAX_SHARED = 64;
+
+    // keyed by each cache's own copy of the zone, equal zones have the same id and rules
+    private static final ConcurrentHashMap<TimeZone, ZoneOffsetCache> CACHES =
+            new ConcurrentHashMap<TimeZone, ZoneOffsetCache>();
+
+    public static final ZoneOffsetCache UTC = new ZoneOffsetCache(TimeZone.getTimeZone("UTC"));
+
+    private final TimeZone zone;
+    // window index << OFFSET_BITS | biased offset in seconds
+    private final AtomicLongArray entries = new AtomicLongArray(SIZE);
+
+    private ZoneOffsetCache(TimeZone zone) {
+        this.zone = zone;
+        for (int i = 0; i < SIZE; i++) {
+            entries.set(i, EMPTY);
+        }
+    }
+
+    /**
+     * @return the shared cache for zones equal to this one, i.e. with the same id and rules.
+     * The zone is copied, later changes to it are not seen. Custom zones that do not implement
+     * {@link TimeZone#equals(Object)}, and zones beyond the first 64, get a
+     * new cache every call.
+     */
+    public static ZoneOffsetCache of(TimeZone zone) {
+        ZoneOffsetCache cache = CACHES.get(zone);
+        if (cache == null) {
+            cache = new ZoneOffsetCache((TimeZone) zone.clone());
+            if (CACHES.size() < MAX_SHARED) {
+                ZoneOffsetCache shared = CACHES.putIfAbsent(cache.zone, cache);
+                if (shared != null) {
+                    cache = shared;
+                }
+            }
+        }
+        return cache;
+    }
+
+    public static ZoneOffsetCache getDefault() {
+        return of(TimeZone.getDefault());
+    }
+
+    public TimeZone getZone() {
+        return (TimeZone) zone.clone();
+    }
+
+    /**
+     * @return the offset from UTC in millis at the given instant.
+     */
+    public int getOffset(long utcMillis) {
+        long window = DateMath.floorDiv(utcMillis, WINDOW_MILLIS);
+        if (window >= MAX_WINDOW || window <= -MAX_WINDOW) {
+            return zone.getOffset(utcMillis);
+        }
+        int slot = (int) window & (SIZE - 1);
+        long entry = entries.get(slot);
+        if (entry != EMPTY && (entry >> OFFSET_BITS) == window) {
+            return (int) ((entry & OFFSET_MASK) - OFFSET_BIAS) * 1000;
+        }
+        return fill(window, slot, utcMillis);
+    }
+
+    /**
+     * @return the wall clock time of the instant, as millis since the local epoch.
+     */
+    public long toLocal(long utcMillis) {
+        return utcMillis + getOffset(utcMillis);
+    }
+
+    /**
+     * @return the instant of a wall clock time. Like {@code java.time}, a local time repeated
+     * by a DST overlap resolves to its earlier instant, and one skipped by a DST gap is shifted
+     * forward by the length of the gap.
+     * <p>
+     * Assumes at most one offset transition within a day of the time, which holds for every
+     * zone in the tz database since 1900.
+     */
+    public long toUtc(long localMillis) {
+        long guess = localMillis - getOffset(localMillis);
+        int before = getOffset(guess - TRANSITION_WINDOW_MILLIS);
+        int after = getOffset(guess + TRANSITION_WINDOW_MILLIS);
+        long early = localMillis - before;
+        if (before == after) {
+            return early;
+        }
+        long late = localMillis - after;
+        boolean earlyValid = getOffset(early) == before;
+        boolean lateValid = getOffset(late) == after;
+        if (earlyValid && lateValid) {
+            return Math.min(early, late);
+        }
+        if (lateValid) {
+            return late;
+        }
+        // valid under the earlier offset, or in a gap where that offset moves it past the gap
+        return early;
+    }
+
+    private int fill(long window, int slot, long utcMillis) {
+        int offset = zone.getOffset(utcMillis);
+        long start = window * WINDOW_MILLIS;
+        if (offset % 1000 == 0
+                && zone.getOffset(start) == offset
+                && zone.getOffset(start + WINDOW_MILLIS - 1) == offset) {
+            entries.set(slot, (window << OFFSET_BITS) | ((offset / 1000 + OFFSET_BIAS) & OFFSET_MASK));
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,194 @@
+package com.maxml.datetime.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares {@link DateCodec} with the {@link SimpleDateFormat} patterns of
+ * {@code DateFormatter}, and pins down where the two deliberately differ.
+ */
+public class DateCodecTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static final String DEFAULT_PATTERN = "yyyy-MM-dd HH:mm:ss.SSS";
+    private static final String UI_PATTERN = "yyyy-MM-dd HH:mm:ss.SSS z";
+
+    // 1582-10-15, the first Gregorian day, to the end of 9999
+    private static final long MIN_MILLIS = -12219292800000L;
+    private static final long MAX_MILLIS = 253402300799999L;
+    private static final int ROUNDS = 20000;
+
+    // zones both parsers read
+    private static final String[] SHARED_ZONES = {"GMT", "UTC", "GMT+03:00", "GMT-3:30",
+            "GMT+23:59", "+0530", "-0800"};
+
+    private static final long JULY_27 = 1469634486158L;
+
+    @Test
+    public void format_matchesSimpleDateFormat() {
+        SimpleDateFormat defaultFormat = gmt(DEFAULT_PATTERN);
+        SimpleDateFormat uiFormat = gmt(UI_PATTERN);
+        byte[] bytes = new byte[DateCodec.UI_LENGTH + 3];
+        ByteBuffer direct = ByteBuffer.allocateDirect(DateCodec.UI_LENGTH + 3);
+        Random random = new Random(27);
+        for (int i = 0; i < ROUNDS; i++) {
+            long millis = randomMillis(random);
+            String expected = defaultFormat.format(new Date(millis));
+            assertEquals(expected, DateCodec.formatDefault(millis, bytes, 3) - 3, DateCodec.DEFAULT_LENGTH);
+            assertEquals(expected, new String(bytes, 3, DateCodec.DEFAULT_LENGTH, ASCII));
+
+            expected = uiFormat.format(new Date(millis));
+            assertEquals(expected, DateCodec.formatUi(millis, direct, 3) - 3, DateCodec.UI_LENGTH);
+            assertEquals(expected, string(direct, 3, DateCodec.UI_LENGTH));
+        }
+    }
+
+    @Test
+    public void parse_matchesSimpleDateFormat() throws ParseException {
+        SimpleDateFormat defaultFormat = gmt(DEFAULT_PATTERN);
+        SimpleDateFormat uiFormat = gmt(UI_PATTERN);
+        Random random = new Random(158);
+        for (int i = 0; i < ROUNDS; i++) {
+            long millis = randomMillis(random);
+            String text = defaultFormat.format(new Date(millis));
+            assertEquals(text, millis, DateCodec.parseDefault(bytes("xx" + text), 2));
+            assertEquals(text, millis, DateCodec.parseDefault(ByteBuffer.wrap(bytes(text)), 0));
+
+            text = text + " " + SHARED_ZONES[i % SHARED_ZONES.length];
+            long expected = uiFormat.parse(text).getTime();
+            assertEquals(text, expected, DateCodec.parseUi(bytes(text), 0, text.length()));
+            assertEquals(text, expected, DateCodec.parseUi(direct(text), 0, text.length()));
+        }
+    }
+
+    @Test
+    public void parseUi_readsOffsetsSimpleDateFormatRejects() {
+        assertUi(JULY_27, "UT");
+        assertUi(JULY_27 + 5 * DateMath.MILLIS_PER_HOUR, "GMT-5");
+        assertUi(JULY_27 - 5 * DateMath.MILLIS_PER_HOUR, "GMT+05");
+        assertUi(JULY_27 - 330 * DateMath.MILLIS_PER_MINUTE, "GMT+0530");
+        assertUi(JULY_27 - 330 * DateMath.MILLIS_PER_MINUTE, "GMT+5:30");
+    }
+
+    @Test
+    public void parseUi_rejectsZoneNames() {
+        for (String zone : new String[]{"PST", "CET", "gmt", "Z", "", "GMT+", "GMT+24:00",
+                "GMT+3:60", "GMT+123", "+053", "+2400", "GMT 03:00"}) {
+            String text = "2016-07-27 15:48:06.158 " + zone;
+            assertEquals(text, DateCodec.INVALID, DateCodec.parseUi(bytes(text), 0, text.length()));
+        }
+    }
+
+    @Test
+    public void parse_rejectsWhatLenientParsingRollsOver() {
+        for (String text : new String[]{"2016-02-30 00:00:00.000", "2015-02-29 00:00:00.000",
+                "2016-07-27 24:00:00.000", "2016-07-27 15:60:06.158", "2016-07-27 15:48:60.158",
+                "2016-13-27 15:48:06.158", "2016-00-27 15:48:06.158", "2016-07-00 15:48:06.158",
+                "2016-7-27 15:48:06.1580", "2016-07-27T15:48:06.158", "2016/07/27 15:48:06.158",
+                "2016-07-27 15:48:06,158", "+016-07-27 15:48:06.158", "2016-07-27 15:48:06.15x"}) {
+            assertEquals(text, DateCodec.INVALID, DateCodec.parseDefault(bytes(text), 0));
+            String ui = text + " GMT";
+            assertEquals(ui, DateCodec.INVALID, DateCodec.parseUi(bytes(ui), 0, ui.length()));
+        }
+    }
+
+    @Test
+    public void parse_rejectsOutOfBounds() {
+        byte[] text = bytes("2016-07-27 15:48:06.158 GMT");
+        assertEquals(DateCodec.INVALID, DateCodec.parseDefault(text, -1));
+        assertEquals(DateCodec.INVALID, DateCodec.parseDefault(text, 5));
+        assertEquals(DateCodec.INVALID, DateCodec.parseUi(text, 1, text.length));
+        assertEquals(DateCodec.INVALID, DateCodec.parseUi(text, 0, -1));
+        assertEquals(DateCodec.INVALID, DateCodec.parseUi(text, 0, DateCodec.DEFAULT_LENGTH));
+
+        ByteBuffer buffer = ByteBuffer.wrap(text);
+        buffer.limit(DateCodec.DEFAULT_LENGTH - 1);
+        assertEquals(DateCodec.INVALID, DateCodec.parseDefault(buffer, 0));
+    }
+
+    @Test
+    public void buffers_keepPositionAndLimit() {
+        ByteBuffer buffer = direct("..2016-07-27 15:48:06.158 GMT");
+        buffer.position(1);
+        assertEquals(JULY_27, DateCodec.parseUi(buffer, 2, DateCodec.UI_LENGTH));
+        DateCodec.formatUi(0, buffer, 2);
+        assertEquals(1, buffer.position());
+        assertEquals(buffer.capacity(), buffer.limit());
+        assertEquals("1970-01-01 00:00:00.000 GMT", string(buffer, 2, DateCodec.UI_LENGTH));
+    }
+
+    @Test
+    public void format_rejectsYearsOutsideThePattern() {
+        byte[] bytes = new byte[DateCodec.DEFAULT_LENGTH];
+        for (long millis : new long[]{MAX_MILLIS + 1, -62167219200001L}) {
+            try {
+                DateCodec.formatDefault(millis, bytes, 0);
+                fail(Long.toString(millis));
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        // year 0000 is the first that fits
+        DateCodec.formatDefault(-62167219200000L, bytes, 0);
+        assertEquals("0000-01-01 00:00:00.000", new String(bytes, ASCII));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void format_checksBounds() {
+        DateCodec.formatUi(0, new byte[DateCodec.UI_LENGTH], 1);
+    }
+
+    @Test
+    public void beforeGregorian_isProleptic() {
+        // SimpleDateFormat switches to the Julian calendar here, DateCodec does not
+        String text = "1582-10-04 00:00:00.000";
+        assertEquals(DateMath.daysFromCivil(1582, 10, 4) * DateMath.MILLIS_PER_DAY,
+                DateCodec.parseDefault(bytes(text), 0));
+    }
+
+    private static void assertUi(long expected, String zone) {
+        String text = "2016-07-27 15:48:06.158 " + zone;
+        assertEquals(text, expected, DateCodec.parseUi(bytes(text), 0, text.length()));
+    }
+
+    private static long randomMillis(Random random) {
+        return MIN_MILLIS + (long) (random.nextDouble() * (MAX_MILLIS - MIN_MILLIS));
+    }
+
+    private static SimpleDateFormat gmt(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(ASCII);
+    }
+
+    private static ByteBuffer direct(String text) {
+        byte[] bytes = bytes(text);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.clear();
+        return buffer;
+    }
+
+    private static String string(ByteBuffer buffer, int index, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(index + i);
+        }
+        return new String(bytes, ASCII);
+    }
+}
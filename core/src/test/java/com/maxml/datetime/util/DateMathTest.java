@@ -0,0 +1,122 @@
+package com.maxml.datetime.util;
+
+import org.junit.Test;
+import org.threeten.bp.Instant;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneId;
+import org.threeten.bp.ZonedDateTime;
+import org.threeten.bp.temporal.ChronoUnit;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares {@link DateMath} with {@code java.time} as backported by ThreeTen.
+ */
+public class DateMathTest {
+
+    private static final String[] ZONES = {"UTC", "Europe/Berlin", "America/New_York",
+            "Australia/Lord_Howe", "America/Sao_Paulo", "Asia/Kolkata", "Pacific/Apia"};
+
+    // one instant a little over every 3 days, at varying times of day
+    private static final long STEP_MILLIS = 3 * DateMath.MILLIS_PER_DAY + 7919 * 1000L;
+    private static final long FROM_MILLIS = millis(2000, 1, 1);
+    private static final long TO_MILLIS = millis(2016, 1, 1);
+
+    @Test
+    public void civilDates_matchLocalDate() {
+        for (long day = -800000; day <= 800000; day += 97) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            int civil = DateMath.civilFromDays(day);
+            assertEquals(date.toString(), date.getYear(), DateMath.year(civil));
+            assertEquals(date.toString(), date.getMonthValue(), DateMath.month(civil));
+            assertEquals(date.toString(), date.getDayOfMonth(), DateMath.day(civil));
+            assertEquals(date.toString(), day,
+                    DateMath.daysFromCivil(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+            assertEquals(date.toString(), date.lengthOfMonth(),
+                    DateMath.lengthOfMonth(date.getYear(), date.getMonthValue()));
+        }
+    }
+
+    @Test
+    public void floorDivAndMod_matchMath() {
+        long[] values = {-7, -6, -1, 0, 1, 6, 7, Long.MIN_VALUE + 1, Long.MAX_VALUE};
+        for (long x : values) {
+            for (long y : new long[]{-3, 3, DateMath.MILLIS_PER_DAY}) {
+                long q = (long) Math.floor((double) x / y);
+                if (Math.abs(x) < 1L << 52) {
+                    assertEquals(x + " / " + y, q, DateMath.floorDiv(x, y));
+                }
+                assertEquals(x + " % " + y, x, DateMath.floorDiv(x, y) * y + DateMath.floorMod(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void fields_matchZonedDateTime() {
+        for (String id : ZONES) {
+            ZoneOffsetCache cache = ZoneOffsetCache.of(TimeZone.getTimeZone(id));
+            ZoneId zone = ZoneId.of(id);
+            for (long millis = FROM_MILLIS; millis < TO_MILLIS; millis += STEP_MILLIS) {
+                ZonedDateTime expected = ZonedDateTime.ofInstant(
+                        Instant.ofEpochMilli(millis), zone);
+                String message = expected.toString();
+                assertEquals(message, expected.getYear(), DateMath.year(millis, cache));
+                assertEquals(message, expected.getMonthValue() - 1, DateMath.month(millis, cache));
+                assertEquals(message, expected.getDayOfMonth(), DateMath.dayOfMonth(millis, cache));
+                assertEquals(message, expected.getDayOfWeek().getValue() % 7 + 1,
+                        DateMath.dayOfWeek(millis, cache));
+                assertEquals(message, expected.toLocalTime().toNanoOfDay() / 1000000,
+                        DateMath.millisOfDay(millis, cache));
+                assertEquals(message, expected.toLocalDate().atStartOfDay(zone).toInstant().toEpochMilli(),
+                        DateMath.startOfDay(millis, cache));
+                assertEquals(message, expected.withDayOfMonth(1).toLocalDate().atStartOfDay(zone)
+                        .toInstant().toEpochMilli(), DateMath.startOfMonth(millis, cache));
+            }
+        }
+    }
+
+    @Test
+    public void plusDaysAndMonths_matchZonedDateTime() {
+        for (String id : ZONES) {
+            ZoneOffsetCache cache = ZoneOffsetCache.of(TimeZone.getTimeZone(id));
+            ZoneId zone = ZoneId.of(id);
+            for (long millis = FROM_MILLIS; millis < TO_MILLIS; millis += STEP_MILLIS) {
+                LocalDateTime local = LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(millis), zone);
+                String message = id + " " + local;
+                for (int amount : new int[]{-13, -1, 1, 2, 12}) {
+                    assertEquals(message + " plus days " + amount,
+                            toMillis(local.plusDays(amount), zone),
+                            DateMath.plusDays(millis, amount, cache));
+                    assertEquals(message + " plus months " + amount,
+                            toMillis(local.plusMonths(amount), zone),
+                            DateMath.plusMonths(millis, amount, cache));
+                }
+                long later = millis + 40 * STEP_MILLIS;
+                assertEquals(message, ChronoUnit.DAYS.between(local.toLocalDate(),
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(later), zone)
+                                .toLocalDate()),
+                        DateMath.daysBetween(millis, later, cache));
+            }
+        }
+    }
+
+    @Test
+    public void toMillis_matchesCalendarMonths() {
+        ZoneOffsetCache cache = ZoneOffsetCache.of(TimeZone.getTimeZone("Europe/Berlin"));
+        assertEquals(toMillis(LocalDateTime.of(2016, 7, 27, 15, 48, 6, 158000000), ZoneId.of("Europe/Berlin")),
+                DateMath.toMillis(2016, Calendar.JULY, 27, 15, 48, 6, 158, cache));
+    }
+
+    private static long toMillis(LocalDateTime local, ZoneId zone) {
+        return local.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private static long millis(int year, int month, int day) {
+        return LocalDate.of(year, month, day).toEpochDay() * DateMath.MILLIS_PER_DAY;
+    }
+}
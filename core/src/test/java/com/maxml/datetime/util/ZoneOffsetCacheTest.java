@@ -0,0 +1,100 @@
+package com.maxml.datetime.util;
+
+import org.junit.Test;
+import org.threeten.bp.Instant;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneId;
+import org.threeten.bp.ZoneOffset;
+import org.threeten.bp.zone.ZoneOffsetTransition;
+import org.threeten.bp.zone.ZoneRules;
+
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Compares {@link ZoneOffsetCache} with the {@code java.time} zone rules as backported by
+ * ThreeTen, around every offset transition of a few zones.
+ */
+public class ZoneOffsetCacheTest {
+
+    // DST by an hour, by 30 minutes, at midnight, and a whole day skipped
+    private static final String[] ZONES = {"Europe/Berlin", "America/New_York",
+            "Australia/Lord_Howe", "America/Sao_Paulo", "Pacific/Apia"};
+
+    private static final long STEP_MILLIS = 15 * DateMath.MILLIS_PER_MINUTE;
+    private static final long SWEEP_MILLIS = 30 * DateMath.MILLIS_PER_HOUR;
+    private static final Instant FROM = Instant.parse("1990-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2016-01-01T00:00:00Z");
+
+    @Test
+    public void of_sharesEqualZones() {
+        assertSame(ZoneOffsetCache.of(TimeZone.getTimeZone("Europe/Berlin")),
+                ZoneOffsetCache.of(TimeZone.getTimeZone("Europe/Berlin")));
+    }
+
+    @Test
+    public void of_separatesZonesWithTheSameIdAndOtherRules() {
+        ZoneOffsetCache plusOne = ZoneOffsetCache.of(new SimpleTimeZone(3600000, "Custom"));
+        ZoneOffsetCache plusTwo = ZoneOffsetCache.of(new SimpleTimeZone(7200000, "Custom"));
+        assertNotSame(plusOne, plusTwo);
+        assertEquals(3600000, plusOne.getOffset(0));
+        assertEquals(7200000, plusTwo.getOffset(0));
+    }
+
+    @Test
+    public void of_copiesTheZone() {
+        SimpleTimeZone zone = new SimpleTimeZone(3600000, "Mutable");
+        ZoneOffsetCache cache = ZoneOffsetCache.of(zone);
+        zone.setRawOffset(0);
+        assertEquals(3600000, cache.getOffset(0));
+        assertEquals(0, ZoneOffsetCache.of(zone).getOffset(0));
+    }
+
+    @Test
+    public void toUtc_skippedDay() {
+        ZoneOffsetCache cache = ZoneOffsetCache.of(TimeZone.getTimeZone("Pacific/Apia"));
+        long local = LocalDateTime.parse("2011-12-30T04:45").toEpochSecond(ZoneOffset.UTC) * 1000;
+        // java.time shifts the skipped wall clock time forward by the 24 hour gap
+        assertEquals(Instant.parse("2011-12-30T14:45:00Z").toEpochMilli(), cache.toUtc(local));
+    }
+
+    @Test
+    public void aroundTransitions_matchZoneRules() {
+        for (String id : ZONES) {
+            ZoneOffsetCache cache = ZoneOffsetCache.of(TimeZone.getTimeZone(id));
+            ZoneId zone = ZoneId.of(id);
+            ZoneRules rules = zone.getRules();
+            for (ZoneOffsetTransition transition = rules.nextTransition(FROM);
+                 transition != null && transition.getInstant().isBefore(TO);
+                 transition = rules.nextTransition(transition.getInstant())) {
+                long instant = transition.getInstant().toEpochMilli();
+                for (long utc = instant - SWEEP_MILLIS; utc <= instant + SWEEP_MILLIS; utc += STEP_MILLIS) {
+                    assertEquals(id + " offset at " + Instant.ofEpochMilli(utc),
+                            rules.getOffset(Instant.ofEpochMilli(utc)).getTotalSeconds() * 1000,
+                            cache.getOffset(utc));
+                }
+                long local = transition.getDateTimeBefore().toEpochSecond(ZoneOffset.UTC) * 1000;
+                for (long wall = local - SWEEP_MILLIS; wall <= local + SWEEP_MILLIS; wall += STEP_MILLIS) {
+                    LocalDateTime dateTime = LocalDateTime.ofEpochSecond(wall / 1000, 0,
+                            ZoneOffset.UTC);
+                    long utc = cache.toUtc(wall);
+                    assertEquals(id + " " + dateTime,
+                            dateTime.atZone(zone).toInstant().toEpochMilli(), utc);
+                    assertEquals(id + " round trip " + dateTime,
+                            wall + gapShift(rules, dateTime), cache.toLocal(utc));
+                }
+            }
+        }
+    }
+
+    // how far a wall clock time in a gap moves forward, 0 elsewhere
+    private static long gapShift(ZoneRules rules, LocalDateTime dateTime) {
+        ZoneOffsetTransition transition = rules.getTransition(dateTime);
+        return transition != null && transition.isGap()
+                ? transition.getDuration().getSeconds() * 1000 : 0;
+    }
+}
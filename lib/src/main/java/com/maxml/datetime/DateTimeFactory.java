@@ -1,138 +1,165 @@
 package com.maxml.datetime;
 
-import android.app.DatePickerDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
-import android.widget.DatePicker;
 import android.widget.TextView;
 
 import com.afollestad.materialdialogs.MaterialDialog;
-import com.maxml.datetime.dialog.TimePickerDialog;
 import com.maxml.datetime.fragment.DatePickerFragment;
+import com.maxml.datetime.fragment.OnDateTimeSetListener;
 import com.maxml.datetime.fragment.TimePickerFragment;
 import com.maxml.datetime.util.DateFormatter;
-
-import java.util.Calendar;
-import java.util.GregorianCalendar;
-import java.util.TimeZone;
-
-public class DateTimeFactory {
+import com.maxml.datetime.util.PickerTrace;
+
+import java.lang.ref.WeakReference;
+import java.util.Date;
+
+/**
+ * Lets the user edit the date shown in a {@link TextView} through a chain of dialogs.
+ * <p>
+ * The date and time pickers are {@link DatePickerFragment} and {@link TimePickerFragment}, so
+ * they survive recreation. Their results reach the factory through the activity, which must
+ * implement {@link OnDateTimeSetListener} and forward to {@link #onDateTimeSet(String, long)}.
+ * To continue after recreation, save {@link #getMillis()} and pass it to
+ * {@link #DateTimeFactory(AppCompatActivity, TextView, long)}, which skips parsing the view's
+ * text. The list of choices is a plain dialog and is not restored.
+ * <p>
+ * The activity and the view are held weakly, so a callback that outlives them does nothing
+ * instead of leaking them. The date is kept as epoch millis and edited in UTC, like the
+ * displayed string.
+ */
+public class DateTimeFactory implements OnDateTimeSetListener {
+
+    /**
+     * Tags of the picker fragments, passed to {@link #onDateTimeSet(String, long)}.
+     */
+    public static final String TAG_DATE = "DateTimeFactory.date";
+    public static final String TAG_TIME = "DateTimeFactory.time";
 
     private static final int DIALOG_DATE = 0;
     private static final int DIALOG_TIME = 1;
     private static final int DIALOG_EXIT = 2;
 
-    private AppCompatActivity activity;
-    // TODO: refactor
-    private TextView dateView;
-    private Calendar calendar;
+    private final WeakReference<AppCompatActivity> activity;
+    private final WeakReference<TextView> dateView;
+    private long millis;
 
+    /**
+     * Starts from the date shown in the view, or now if there is none.
+     */
     public DateTimeFactory(AppCompatActivity activity, TextView dateView) {
-        this.activity = activity;
-        this.dateView = dateView;
+        this(activity, dateView, parseShownDate(activity, dateView));
+    }
 
-        if (activity.getString(R.string.main_no_date).equals(dateView.getText())) {
-            calendar = GregorianCalendar.getInstance(TimeZone.getTimeZone("UTC"));
-        } else {
-            calendar = DateFormatter.toUiCalendar(dateView.getText().toString());
+    /**
+     * @param millis the initial date, e.g. from {@link #getMillis()} kept in saved state.
+     */
+    public DateTimeFactory(AppCompatActivity activity, TextView dateView, long millis) {
+        if (!(activity instanceof OnDateTimeSetListener)) {
+            throw new IllegalArgumentException("the activity must implement OnDateTimeSetListener");
         }
+        this.activity = new WeakReference<AppCompatActivity>(activity);
+        this.dateView = new WeakReference<TextView>(dateView);
+        this.millis = millis;
+    }
+
+    /**
+     * @return the edited date as epoch millis.
+     */
+    public long getMillis() {
+        return millis;
     }
 
     public void start() {
         chooseDialog();
     }
 
+    /**
+     * Applies the result of a picker opened by this factory and shows the choices again.
+     * Results of other pickers, told apart by their tag, are ignored.
+     */
+    @Override
+    public void onDateTimeSet(String tag, long millis) {
+        if (!TAG_DATE.equals(tag) && !TAG_TIME.equals(tag)) {
+            return;
+        }
+        this.millis = millis;
+        showDate();
+
+        chooseDialog();
+    }
+
     // TODO: delete lib -> move to other flavour
     public void chooseDialog() {
-        new MaterialDialog.Builder(activity)
-                .title(R.string.dialog_datetime_title)
-                .items(R.array.dialog_array_exit)
-                .itemsCallback(new MaterialDialog.ListCallback() {
-                    @Override
-                    public void onSelection(MaterialDialog dialog, View itemView, int position, CharSequence text) {
-                        dialog.dismiss();
-
-                        switch (position) {
-                            case DIALOG_DATE:
-//                                getDateFragment();
-                                getDateDialog();
-                                break;
-                            case DIALOG_TIME:
-//                                getTimeFragment();
-//                                getTimeDialog();
-                                getCustomTimeDialog();
-                                break;
-                            case DIALOG_EXIT:
-                                dialog.dismiss();
-                                break;
+        AppCompatActivity activity = this.activity.get();
+        if (activity == null) {
+            return;
+        }
+        boolean traced = PickerTrace.beginSection("DateTimeFactory.chooseDialog");
+        try {
+            new MaterialDialog.Builder(activity)
+                    .title(R.string.dialog_datetime_title)
+                    .items(R.array.dialog_array_exit)
+                    .itemsCallback(new MaterialDialog.ListCallback() {
+                        @Override
+                        public void onSelection(MaterialDialog dialog, View itemView, int position, CharSequence text) {
+                            dialog.dismiss();
+                            onDialogSelected(position);
                         }
-                    }
-                }).show();
+                    }).show();
+        } finally {
+            PickerTrace.endSection(traced);
+        }
     }
 
-    private void getTimeFragment() {
-        TimePickerFragment newFragment = new TimePickerFragment();
-        newFragment.setInfo(this, dateView, calendar);
-        newFragment.show(activity.getSupportFragmentManager(), "time-picker");
+    private void onDialogSelected(int position) {
+        AppCompatActivity activity = this.activity.get();
+        if (activity == null) {
+            return;
+        }
+        boolean traced = PickerTrace.beginSection("DateTimeFactory.onDialogSelected");
+        try {
+            openDialog(activity, position);
+        } finally {
+            PickerTrace.endSection(traced);
+        }
     }
 
-    private void getTimeDialog() {
-        TimePickerDialog tpd = new TimePickerDialog(activity, new TimePickerDialog.OnTimeSetListener() {
-            @Override
-            public void onTimeSet(TimePickerDialog.TimePicker view, int hourOfDay, int minute, int seconds) {
-                calendar.set(Calendar.HOUR_OF_DAY, hourOfDay);
-                calendar.set(Calendar.MINUTE, minute);
-                calendar.set(Calendar.SECOND, seconds);
-
-                dateView.setText(DateFormatter.toUiString(calendar.getTime()));
-
-                chooseDialog();
-            }
-        }, calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND), true);
-        tpd.show();
+    private void openDialog(AppCompatActivity activity, int position) {
+        switch (position) {
+            case DIALOG_DATE:
+                getDateDialog(activity);
+                break;
+            case DIALOG_TIME:
+                getTimeDialog(activity);
+                break;
+            case DIALOG_EXIT:
+                break;
+        }
     }
 
-    private void getDateDialog() {
-        DatePickerDialog tpd = new DatePickerDialog(activity, new DatePickerDialog.OnDateSetListener() {
-
-            public void onDateSet(DatePicker view, int year, int monthOfYear,
-                                  int dayOfMonth) {
-
-                calendar.set(Calendar.YEAR, year);
-                calendar.set(Calendar.MONTH, monthOfYear);
-                calendar.set(Calendar.DAY_OF_MONTH, dayOfMonth);
-
-                dateView.setText(DateFormatter.toUiString(calendar.getTime()));
-
-                chooseDialog();
-            }
-        }, calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH));
-        tpd.show();
+    private void getDateDialog(AppCompatActivity activity) {
+        DatePickerFragment.newInstance(millis)
+                .show(activity.getSupportFragmentManager(), TAG_DATE);
     }
 
-    private void getDateFragment() {
-        DatePickerFragment newFragment = new DatePickerFragment();
-        newFragment.setInfo(this, dateView, calendar);
-        newFragment.show(activity.getSupportFragmentManager(), "date-picker");
+    private void getTimeDialog(AppCompatActivity activity) {
+        TimePickerFragment.newInstance(millis)
+                .show(activity.getSupportFragmentManager(), TAG_TIME);
     }
 
-    private void getCustomTimeDialog() {
-        Calendar now = Calendar.getInstance();
-        TimePickerDialog mTimePicker = new TimePickerDialog(activity, new TimePickerDialog.OnTimeSetListener() {
-
-            @Override
-            public void onTimeSet(TimePickerDialog.TimePicker view, int hourOfDay,
-                                  int minute, int seconds) {
-
-                calendar.set(Calendar.HOUR_OF_DAY, hourOfDay);
-                calendar.set(Calendar.MINUTE, minute);
-                calendar.set(Calendar.SECOND, seconds);
-
-                dateView.setText(DateFormatter.toUiString(calendar.getTime()));
+    private void showDate() {
+        TextView dateView = this.dateView.get();
+        if (dateView != null) {
+            dateView.setText(DateFormatter.toUiString(new Date(millis)));
+        }
+    }
 
-                chooseDialog();
-            }
-        }, now.get(Calendar.HOUR_OF_DAY), now.get(Calendar.MINUTE), now.get(Calendar.SECOND), true);
-        mTimePicker.show();
+    private static long parseShownDate(AppCompatActivity activity, TextView dateView) {
+        if (activity.getString(R.string.main_no_date).equals(dateView.getText().toString())) {
+            return System.currentTimeMillis();
+        }
+        Date date = DateFormatter.fromUIStringToDate(dateView.getText().toString());
+        return date != null ? date.getTime() : System.currentTimeMillis();
     }
 }
@@ -0,0 +1,641 @@
+package com.maxml.datetime.dialog;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+import android.content.DialogInterface.OnClickListener;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
+import android.text.format.DateUtils;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.Window;
+import android.view.accessibility.AccessibilityEvent;
+
+import com.maxml.datetime.R;
+import com.maxml.datetime.util.PickerTrace;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.List;
+
+
+/**
+ * A dialog that prompts the user for a date using a {@link MonthView}.
+ * <p>
+ * Unlike {@link android.app.DatePickerDialog} nothing is inflated: the month grid is a single
+ * custom-drawn view.
+ */
+public class DatePickerDialog extends AlertDialog implements OnClickListener {
+
+    /**
+     * The callback interface used to indicate the user is done filling in
+     * the date (they clicked on the 'Set' button).
+     */
+    public interface OnDateSetListener {
+
+        /**
+         * @param view        The view associated with this listener.
+         * @param year        The year that was set.
+         * @param monthOfYear The month that was set (0-11) for compatibility
+         *                    with {@link java.util.Calendar}.
+         * @param dayOfMonth  The day of the month that was set.
+         */
+        void onDateSet(MonthView view, int year, int monthOfYear, int dayOfMonth);
+    }
+
+    /**
+     * The callback interface used to indicate the date has been adjusted.
+     */
+    public interface OnDateChangedListener {
+
+        /**
+         * @param view        The view associated with this listener.
+         * @param year        The current year.
+         * @param monthOfYear The current month (0-11).
+         * @param dayOfMonth  The current day of the month.
+         */
+        void onDateChanged(MonthView view, int year, int monthOfYear, int dayOfMonth);
+    }
+
+    private static final String YEAR = "year";
+    private static final String MONTH = "month";
+    private static final String DAY = "day";
+
+    private final MonthView mMonthView;
+    private final OnDateSetListener mCallback;
+    private final PickerTrace.Timings mTimings;
+
+    /**
+     * @param context     Parent.
+     * @param callBack    How parent is notified.
+     * @param year        The initial year.
+     * @param monthOfYear The initial month (0-11).
+     * @param dayOfMonth  The initial day of the month.
+     */
+    public DatePickerDialog(Context context,
+                            OnDateSetListener callBack,
+                            int year, int monthOfYear, int dayOfMonth) {
+        this(context, 0, callBack, year, monthOfYear, dayOfMonth);
+    }
+
+    /**
+     * @param context     Parent.
+     * @param theme       the theme to apply to this dialog
+     * @param callBack    How parent is notified.
+     * @param year        The initial year.
+     * @param monthOfYear The initial month (0-11).
+     * @param dayOfMonth  The initial day of the month.
+     */
+    public DatePickerDialog(Context context,
+                            int theme,
+                            OnDateSetListener callBack,
+                            int year, int monthOfYear, int dayOfMonth) {
+        this(context, theme, callBack, year, monthOfYear, dayOfMonth,
+                PickerTrace.start("DatePickerDialog"));
+    }
+
+    // takes the timings so that they include the super constructor
+    private DatePickerDialog(Context context,
+                             int theme,
+                             OnDateSetListener callBack,
+                             int year, int monthOfYear, int dayOfMonth,
+                             PickerTrace.Timings timings) {
+        super(context, theme);
+        mTimings = timings;
+        try {
+            requestWindowFeature(Window.FEATURE_NO_TITLE);
+            mCallback = callBack;
+
+            setButton(context.getText(R.string.date_set), this);
+            setButton2(context.getText(R.string.cancel), (OnClickListener) null);
+
+            // nothing to inflate, this is the cost of the content view
+            mTimings.beginInflate();
+            try {
+                mMonthView = new MonthView(getContext());
+                mMonthView.setDate(year, monthOfYear, dayOfMonth);
+            } finally {
+                mTimings.endInflate();
+            }
+            setView(mMonthView);
+            mTimings.watchFirstDraw(mMonthView);
+        } finally {
+            mTimings.endConstruct();
+        }
+    }
+
+    public void onClick(DialogInterface dialog, int which) {
+        if (mCallback != null) {
+            mTimings.beginSelection();
+            try {
+                mCallback.onDateSet(mMonthView, mMonthView.getYear(),
+                        mMonthView.getMonth(), mMonthView.getDayOfMonth());
+            } finally {
+                mTimings.endSelection();
+            }
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        mTimings.report();
+    }
+
+    public void updateDate(int year, int monthOfYear, int dayOfMonth) {
+        mMonthView.setDate(year, monthOfYear, dayOfMonth);
+    }
+
+    public MonthView getMonthView() {
+        return mMonthView;
+    }
+
+    @Override
+    public Bundle onSaveInstanceState() {
+        Bundle state = super.onSaveInstanceState();
+        state.putInt(YEAR, mMonthView.getYear());
+        state.putInt(MONTH, mMonthView.getMonth());
+        state.putInt(DAY, mMonthView.getDayOfMonth());
+        return state;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Bundle savedInstanceState) {
+        super.onRestoreInstanceState(savedInstanceState);
+        mMonthView.setDate(savedInstanceState.getInt(YEAR), savedInstanceState.getInt(MONTH),
+                savedInstanceState.getInt(DAY));
+    }
+
+    /**
+     * A single view drawing one month as a grid of days, with a header to page between months.
+     * <p>
+     * There is no child view per day. Day labels are shared, and the month title and the
+     * position of every day are computed once when the month or the size changes, so drawing
+     * does not allocate. Days and the paging arrows are exposed to accessibility services as
+     * virtual views, and the arrow keys move the selection by a day or a week.
+     */
+    public static class MonthView extends View {
+
+        private static final int COLUMNS = 7;
+        private static final int ROWS = 6;
+        // title row and weekday row above the days
+        private static final int HEADER_ROWS = 2;
+        private static final int CELL_SIZE_DP = 44;
+        private static final int MAX_CACHED_TITLES = 24;
+
+        // virtual view ids, days are 1-31
+        private static final int PREVIOUS_ID = 100;
+        private static final int NEXT_ID = 101;
+
+        private static final String[] DAY_LABELS = new String[32];
+        private static final String PREVIOUS = "\u2039";
+        private static final String NEXT = "\u203A";
+
+        static {
+            for (int day = 1; day < DAY_LABELS.length; day++) {
+                DAY_LABELS[day] = Integer.toString(day);
+            }
+        }
+
+        // state
+        private int mYear;
+        private int mMonth; // 0-11
+        private int mDay;
+        private final int mFirstDayOfWeek;
+
+        // per month, recomputed by updateMonth()
+        private int mFirstColumn;
+        private int mDaysInMonth;
+        private String mTitle;
+        private final float[] mDayX = new float[32];
+        private final float[] mDayY = new float[32];
+        private final SparseArray<String> mTitles = new SparseArray<String>();
+
+        // per size
+        private float mCellWidth;
+        private float mCellHeight;
+        private float mTextOffset;
+
+        // ui resources
+        private final String[] mWeekdayLabels = new String[COLUMNS];
+        private final Paint mTextPaint;
+        private final Paint mHeaderPaint;
+        private final Paint mSelectionPaint;
+        private final int mTextColor;
+        private final int mAccentColor;
+        private final int mCellSize;
+        private final int mTouchSlop;
+        private final Calendar mCalendar = Calendar.getInstance();
+        private final MonthTouchHelper mTouchHelper;
+
+        // today, to highlight it
+        private final int mTodayYear;
+        private final int mTodayMonth;
+        private final int mTodayDay;
+
+        // touch
+        private float mDownX;
+        private float mDownY;
+
+        // callbacks
+        private OnDateChangedListener mOnDateChangedListener;
+
+        public MonthView(Context context) {
+            this(context, null);
+        }
+
+        public MonthView(Context context, AttributeSet attrs) {
+            this(context, attrs, 0);
+        }
+
+        public MonthView(Context context, AttributeSet attrs, int defStyle) {
+            super(context, attrs, defStyle);
+
+            float density = getResources().getDisplayMetrics().density;
+            float scaledDensity = getResources().getDisplayMetrics().scaledDensity;
+            mCellSize = Math.round(CELL_SIZE_DP * density);
+            mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+            mTextColor = ThemeColors.resolve(context, android.R.attr.textColorPrimary, Color.BLACK);
+            mAccentColor = ThemeColors.resolve(context, R.attr.colorAccent,
+                    ContextCompat.getColor(context, R.color.colorAccent));
+
+            mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mTextPaint.setTextAlign(Paint.Align.CENTER);
+            mTextPaint.setTextSize(14 * scaledDensity);
+            mTextPaint.setColor(mTextColor);
+
+            mHeaderPaint = new Paint(mTextPaint);
+            mHeaderPaint.setFakeBoldText(true);
+            mHeaderPaint.setTextSize(16 * scaledDensity);
+
+            mSelectionPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mSelectionPaint.setColor(mAccentColor);
+
+            DateFormatSymbols dfs = new DateFormatSymbols();
+            String[] weekdays = dfs.getShortWeekdays(); // indexed by Calendar.SUNDAY..SATURDAY
+            mFirstDayOfWeek = mCalendar.getFirstDayOfWeek();
+            for (int column = 0; column < COLUMNS; column++) {
+                mWeekdayLabels[column] = weekdays[(mFirstDayOfWeek - 1 + column) % COLUMNS + 1];
+            }
+
+            mTodayYear = mCalendar.get(Calendar.YEAR);
+            mTodayMonth = mCalendar.get(Calendar.MONTH);
+            mTodayDay = mCalendar.get(Calendar.DAY_OF_MONTH);
+
+            mTouchHelper = new MonthTouchHelper(this);
+            ViewCompat.setAccessibilityDelegate(this, mTouchHelper);
+            setFocusable(true);
+
+            setDate(mTodayYear, mTodayMonth, mTodayDay);
+        }
+
+        /**
+         * Set the callback that indicates the date has been adjusted by the user.
+         */
+        public void setOnDateChangedListener(OnDateChangedListener onDateChangedListener) {
+            mOnDateChangedListener = onDateChangedListener;
+        }
+
+        /**
+         * Set the selected date and show its month.
+         *
+         * @param monthOfYear 0-11.
+         */
+        public void setDate(int year, int monthOfYear, int dayOfMonth) {
+            boolean monthChanged = year != mYear || monthOfYear != mMonth || mTitle == null;
+            mYear = year;
+            mMonth = monthOfYear;
+            if (monthChanged) {
+                updateMonth();
+            }
+            mDay = Math.max(1, Math.min(dayOfMonth, mDaysInMonth));
+            invalidate();
+            mTouchHelper.invalidateRoot();
+        }
+
+        public int getYear() {
+            return mYear;
+        }
+
+        /**
+         * @return The current month (0-11).
+         */
+        public int getMonth() {
+            return mMonth;
+        }
+
+        public int getDayOfMonth() {
+            return mDay;
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            int width = resolveSize(COLUMNS * mCellSize + getPaddingLeft() + getPaddingRight(),
+                    widthMeasureSpec);
+            int height = resolveSize((ROWS + HEADER_ROWS) * mCellSize + getPaddingTop()
+                    + getPaddingBottom(), heightMeasureSpec);
+            setMeasuredDimension(width, height);
+        }
+
+        @Override
+        protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+            super.onSizeChanged(w, h, oldw, oldh);
+            mCellWidth = (float) (w - getPaddingLeft() - getPaddingRight()) / COLUMNS;
+            mCellHeight = (float) (h - getPaddingTop() - getPaddingBottom()) / (ROWS + HEADER_ROWS);
+            // baseline of vertically centered text
+            mTextOffset = -(mTextPaint.ascent() + mTextPaint.descent()) / 2;
+            updateGeometry();
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            float left = getPaddingLeft();
+            float top = getPaddingTop();
+
+            // title with month paging arrows
+            float titleY = top + mCellHeight / 2 + mTextOffset;
+            canvas.drawText(PREVIOUS, left + mCellWidth / 2, titleY, mHeaderPaint);
+            canvas.drawText(mTitle, left + mCellWidth * COLUMNS / 2, titleY, mHeaderPaint);
+            canvas.drawText(NEXT, left + mCellWidth * (COLUMNS - 0.5f), titleY, mHeaderPaint);
+
+            float weekdayY = top + mCellHeight * 1.5f + mTextOffset;
+            for (int column = 0; column < COLUMNS; column++) {
+                canvas.drawText(mWeekdayLabels[column], left + mCellWidth * (column + 0.5f),
+                        weekdayY, mTextPaint);
+            }
+
+            boolean currentMonth = mYear == mTodayYear && mMonth == mTodayMonth;
+            float radius = Math.min(mCellWidth, mCellHeight) * 0.4f;
+            for (int day = 1; day <= mDaysInMonth; day++) {
+                float x = mDayX[day];
+                float y = mDayY[day];
+                if (day == mDay) {
+                    canvas.drawCircle(x, y, radius, mSelectionPaint);
+                    mTextPaint.setColor(Color.WHITE);
+                } else if (currentMonth && day == mTodayDay) {
+                    mTextPaint.setColor(mAccentColor);
+                } else {
+                    mTextPaint.setColor(mTextColor);
+                }
+                canvas.drawText(DAY_LABELS[day], x, y + mTextOffset, mTextPaint);
+            }
+            mTextPaint.setColor(mTextColor);
+        }
+
+        @Override
+        public boolean onTouchEvent(MotionEvent event) {
+            if (!isEnabled()) {
+                return false;
+            }
+            switch (event.getAction()) {
+                case MotionEvent.ACTION_DOWN:
+                    mDownX = event.getX();
+                    mDownY = event.getY();
+                    return true;
+                case MotionEvent.ACTION_UP:
+                    if (Math.abs(event.getX() - mDownX) < mTouchSlop
+                            && Math.abs(event.getY() - mDownY) < mTouchSlop) {
+                        onTap(event.getX(), event.getY());
+                    }
+                    return true;
+                default:
+                    return true;
+            }
+        }
+
+        @Override
+        public boolean dispatchHoverEvent(MotionEvent event) {
+            return mTouchHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+        }
+
+        @Override
+        public boolean onKeyDown(int keyCode, KeyEvent event) {
+            if (!isEnabled()) {
+                return super.onKeyDown(keyCode, event);
+            }
+            switch (keyCode) {
+                case KeyEvent.KEYCODE_DPAD_LEFT:
+                    moveDays(-1);
+                    return true;
+                case KeyEvent.KEYCODE_DPAD_RIGHT:
+                    moveDays(1);
+                    return true;
+                case KeyEvent.KEYCODE_DPAD_UP:
+                    moveDays(-COLUMNS);
+                    return true;
+                case KeyEvent.KEYCODE_DPAD_DOWN:
+                    moveDays(COLUMNS);
+                    return true;
+                case KeyEvent.KEYCODE_PAGE_UP:
+                    showMonth(-1);
+                    return true;
+                case KeyEvent.KEYCODE_PAGE_DOWN:
+                    showMonth(1);
+                    return true;
+                default:
+                    return super.onKeyDown(keyCode, event);
+            }
+        }
+
+        private void onTap(float x, float y) {
+            performVirtualClick(virtualViewAt(x, y));
+        }
+
+        private boolean performVirtualClick(int virtualViewId) {
+            if (virtualViewId == PREVIOUS_ID) {
+                showMonth(-1);
+            } else if (virtualViewId == NEXT_ID) {
+                showMonth(1);
+            } else if (virtualViewId >= 1 && virtualViewId <= mDaysInMonth) {
+                if (virtualViewId != mDay) {
+                    mDay = virtualViewId;
+                    invalidate();
+                    onDateChanged();
+                }
+            } else {
+                return false;
+            }
+            mTouchHelper.sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+            return true;
+        }
+
+        /**
+         * @return the day or arrow at the point, or {@link ExploreByTouchHelper#INVALID_ID}.
+         */
+        private int virtualViewAt(float x, float y) {
+            int column = (int) ((x - getPaddingLeft()) / mCellWidth);
+            int row = (int) ((y - getPaddingTop()) / mCellHeight);
+            if (x < getPaddingLeft() || y < getPaddingTop()
+                    || column >= COLUMNS || row >= ROWS + HEADER_ROWS) {
+                return ExploreByTouchHelper.INVALID_ID;
+            }
+            if (row == 0) {
+                if (column == 0) {
+                    return PREVIOUS_ID;
+                } else if (column == COLUMNS - 1) {
+                    return NEXT_ID;
+                }
+                return ExploreByTouchHelper.INVALID_ID;
+            }
+            int day = (row - HEADER_ROWS) * COLUMNS + column - mFirstColumn + 1;
+            return row >= HEADER_ROWS && day >= 1 && day <= mDaysInMonth
+                    ? day : ExploreByTouchHelper.INVALID_ID;
+        }
+
+        private void moveDays(int delta) {
+            mCalendar.clear();
+            mCalendar.set(mYear, mMonth, mDay);
+            mCalendar.add(Calendar.DAY_OF_MONTH, delta);
+            setDate(mCalendar.get(Calendar.YEAR), mCalendar.get(Calendar.MONTH),
+                    mCalendar.get(Calendar.DAY_OF_MONTH));
+            onDateChanged();
+            mTouchHelper.sendEventForVirtualView(mDay, AccessibilityEvent.TYPE_VIEW_SELECTED);
+        }
+
+        private void showMonth(int delta) {
+            int month = mMonth + delta;
+            int year = mYear;
+            if (month < 0) {
+                month = 11;
+                year--;
+            } else if (month > 11) {
+                month = 0;
+                year++;
+            }
+            setDate(year, month, mDay);
+            onDateChanged();
+        }
+
+        private void onDateChanged() {
+            if (mOnDateChangedListener != null) {
+                mOnDateChangedListener.onDateChanged(this, mYear, mMonth, mDay);
+            }
+        }
+
+        /**
+         * Recompute the layout of the shown month, once per month change.
+         */
+        private void updateMonth() {
+            mCalendar.clear();
+            mCalendar.set(mYear, mMonth, 1);
+            long firstDay = mCalendar.getTimeInMillis();
+            mDaysInMonth = mCalendar.getActualMaximum(Calendar.DAY_OF_MONTH);
+            mFirstColumn = (mCalendar.get(Calendar.DAY_OF_WEEK) - mFirstDayOfWeek + COLUMNS) % COLUMNS;
+
+            int key = mYear * 12 + mMonth;
+            mTitle = mTitles.get(key);
+            if (mTitle == null) {
+                if (mTitles.size() >= MAX_CACHED_TITLES) {
+                    mTitles.clear();
+                }
+                // stand-alone month name, e.g. "июль 2016" rather than the genitive "июля 2016"
+                mTitle = DateUtils.formatDateTime(getContext(), firstDay, DateUtils.FORMAT_SHOW_DATE
+                        | DateUtils.FORMAT_SHOW_YEAR | DateUtils.FORMAT_NO_MONTH_DAY);
+                mTitles.put(key, mTitle);
+            }
+            updateGeometry();
+        }
+
+        private void updateGeometry() {
+            float left = getPaddingLeft();
+            float top = getPaddingTop() + HEADER_ROWS * mCellHeight;
+            for (int day = 1; day <= mDaysInMonth; day++) {
+                int cell = mFirstColumn + day - 1;
+                mDayX[day] = left + mCellWidth * (cell % COLUMNS + 0.5f);
+                mDayY[day] = top + mCellHeight * (cell / COLUMNS + 0.5f);
+            }
+        }
+
+        private String describe(int virtualViewId) {
+            if (virtualViewId == PREVIOUS_ID) {
+                return getContext().getString(R.string.date_previous_month);
+            }
+            if (virtualViewId == NEXT_ID) {
+                return getContext().getString(R.string.date_next_month);
+            }
+            mCalendar.clear();
+            mCalendar.set(mYear, mMonth, virtualViewId);
+            return DateUtils.formatDateTime(getContext(), mCalendar.getTimeInMillis(),
+                    DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_YEAR
+                            | DateUtils.FORMAT_SHOW_WEEKDAY);
+        }
+
+        private void getBounds(int virtualViewId, Rect bounds) {
+            float x;
+            float y;
+            if (virtualViewId == PREVIOUS_ID || virtualViewId == NEXT_ID) {
+                int column = virtualViewId == PREVIOUS_ID ? 0 : COLUMNS - 1;
+                x = getPaddingLeft() + mCellWidth * (column + 0.5f);
+                y = getPaddingTop() + mCellHeight / 2;
+            } else {
+                x = mDayX[virtualViewId];
+                y = mDayY[virtualViewId];
+            }
+            bounds.set(Math.round(x - mCellWidth / 2), Math.round(y - mCellHeight / 2),
+                    Math.round(x + mCellWidth / 2), Math.round(y + mCellHeight / 2));
+        }
+
+        /**
+         * Exposes every day and the paging arrows as a virtual view.
+         */
+        private static class MonthTouchHelper extends ExploreByTouchHelper {
+
+            private final MonthView mView;
+            private final Rect mBounds = new Rect();
+
+            MonthTouchHelper(MonthView view) {
+                super(view);
+                mView = view;
+            }
+
+            @Override
+            protected int getVirtualViewAt(float x, float y) {
+                return mView.virtualViewAt(x, y);
+            }
+
+            @Override
+            protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+                virtualViewIds.add(PREVIOUS_ID);
+                for (int day = 1; day <= mView.mDaysInMonth; day++) {
+                    virtualViewIds.add(day);
+                }
+                virtualViewIds.add(NEXT_ID);
+            }
+
+            @Override
+            protected void onPopulateEventForVirtualView(int virtualViewId, AccessibilityEvent event) {
+                event.setContentDescription(mView.describe(virtualViewId));
+            }
+
+            @Override
+            protected void onPopulateNodeForVirtualView(int virtualViewId,
+                                                        AccessibilityNodeInfoCompat node) {
+                node.setContentDescription(mView.describe(virtualViewId));
+                mView.getBounds(virtualViewId, mBounds);
+                node.setBoundsInParent(mBounds);
+                node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+                node.setSelected(virtualViewId == mView.mDay);
+            }
+
+            @Override
+            protected boolean onPerformActionForVirtualView(int virtualViewId, int action,
+                                                            Bundle arguments) {
+                return action == AccessibilityNodeInfoCompat.ACTION_CLICK
+                        && mView.performVirtualClick(virtualViewId);
+            }
+        }
+    }
+}
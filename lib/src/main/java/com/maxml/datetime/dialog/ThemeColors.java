@@ -0,0 +1,28 @@
+package com.maxml.datetime.dialog;
+
+import android.content.Context;
+import android.support.v4.content.ContextCompat;
+import android.util.TypedValue;
+
+/**
+ * Resolves colors of the custom-drawn pickers from the theme.
+ */
+final class ThemeColors {
+
+    private ThemeColors() {
+    }
+
+    /**
+     * @return the color of a theme attribute, or {@code fallback} if the theme does not set it.
+     */
+    static int resolve(Context context, int attr, int fallback) {
+        TypedValue value = new TypedValue();
+        if (context.getTheme().resolveAttribute(attr, value, true)) {
+            if (value.resourceId != 0) {
+                return ContextCompat.getColorStateList(context, value.resourceId).getDefaultColor();
+            }
+            return value.data;
+        }
+        return fallback;
+    }
+}
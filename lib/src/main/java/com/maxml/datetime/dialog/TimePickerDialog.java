@@ -29,9 +29,9 @@ import android.view.View;
 import android.view.Window;
 import android.widget.Button;
 import android.widget.FrameLayout;
-import android.widget.NumberPicker;
 
 import com.maxml.datetime.R;
+import com.maxml.datetime.util.PickerTrace;
 
 import java.text.DateFormatSymbols;
 import java.util.Calendar;
@@ -44,7 +44,8 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
 
     /**
      * The callback interface used to indicate the user is done filling in
-     * the time (they clicked on the 'Set' button).
+     * the time (they clicked on the 'Set' button). The milliseconds are
+     * available from {@link TimePicker#getCurrentMillis()}.
      */
     public interface OnTimeSetListener {
 
@@ -73,12 +74,15 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
     private static final String HOUR = "hour";
     private static final String MINUTE = "minute";
     private static final String SECONDS = "seconds";
+    private static final String MILLIS = "millis";
+    private static final String SHOW_MILLIS = "showMillis";
     private static final String IS_24_HOUR = "is24hour";
 
     private final TimePicker mTimePicker;
     private final OnTimeSetListener mCallback;
     private final Calendar mCalendar;
     private final java.text.DateFormat mDateFormat;
+    private final PickerTrace.Timings mTimings;
 
     private int mInitialHourOfDay;
     private int mInitialMinute;
@@ -121,54 +125,103 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
                             int theme,
                             OnTimeSetListener callBack,
                             int hourOfDay, int minute, int seconds, boolean is24HourView) {
+        this(context, theme, callBack, hourOfDay, minute, seconds, is24HourView,
+                PickerTrace.start("TimePickerDialog"));
+    }
+
+    // takes the timings so that they include the super constructor
+    private TimePickerDialog(Context context,
+                             int theme,
+                             OnTimeSetListener callBack,
+                             int hourOfDay, int minute, int seconds, boolean is24HourView,
+                             PickerTrace.Timings timings) {
         super(context, theme);
-        requestWindowFeature(Window.FEATURE_NO_TITLE);
-        mCallback = callBack;
-        mInitialHourOfDay = hourOfDay;
-        mInitialMinute = minute;
-        mInitialSeconds = seconds;
-        mIs24HourView = is24HourView;
-
-        mDateFormat = DateFormat.getTimeFormat(context);
-        mCalendar = Calendar.getInstance();
-        updateTitle(mInitialHourOfDay, mInitialMinute, mInitialSeconds);
-
-        setButton(context.getText(R.string.time_set), this);
-        setButton2(context.getText(R.string.cancel), (OnClickListener) null);
-        //setIcon(android.R.drawable.ic_dialog_time);
-
-        LayoutInflater inflater =
-                (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        View view = inflater.inflate(R.layout.time_picker_dialog, null);
-        setView(view);
-        mTimePicker = (TimePicker) view.findViewById(R.id.timePicker);
-
-        // initialize state
-        mTimePicker.setCurrentHour(mInitialHourOfDay);
-        mTimePicker.setCurrentMinute(mInitialMinute);
-        mTimePicker.setCurrentSecond(mInitialSeconds);
-        mTimePicker.setIs24HourView(mIs24HourView);
-        mTimePicker.setOnTimeChangedListener(NO_OP_CHANGE_LISTENER);
+        mTimings = timings;
+        try {
+            requestWindowFeature(Window.FEATURE_NO_TITLE);
+            mCallback = callBack;
+            mInitialHourOfDay = hourOfDay;
+            mInitialMinute = minute;
+            mInitialSeconds = seconds;
+            mIs24HourView = is24HourView;
+
+            mDateFormat = DateFormat.getTimeFormat(context);
+            mCalendar = Calendar.getInstance();
+            updateTitle(mInitialHourOfDay, mInitialMinute, mInitialSeconds);
+
+            setButton(context.getText(R.string.time_set), this);
+            setButton2(context.getText(R.string.cancel), (OnClickListener) null);
+            //setIcon(android.R.drawable.ic_dialog_time);
+
+            LayoutInflater inflater =
+                    (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+            mTimings.beginInflate();
+            View view;
+            try {
+                view = inflater.inflate(R.layout.time_picker_dialog, null);
+            } finally {
+                mTimings.endInflate();
+            }
+            setView(view);
+            mTimings.watchFirstDraw(view);
+            mTimePicker = (TimePicker) view.findViewById(R.id.timePicker);
+
+            // initialize state
+            mTimePicker.setCurrentHour(mInitialHourOfDay);
+            mTimePicker.setCurrentMinute(mInitialMinute);
+            mTimePicker.setCurrentSecond(mInitialSeconds);
+            mTimePicker.setIs24HourView(mIs24HourView);
+            mTimePicker.setOnTimeChangedListener(NO_OP_CHANGE_LISTENER);
+        } finally {
+            mTimings.endConstruct();
+        }
     }
 
     public void onClick(DialogInterface dialog, int which) {
         if (mCallback != null) {
-            mTimePicker.clearFocus();
-            mCallback.onTimeSet(mTimePicker, mTimePicker.getCurrentHour(),
-                    mTimePicker.getCurrentMinute(), mTimePicker.getCurrentSeconds());
+            mTimings.beginSelection();
+            try {
+                mTimePicker.clearFocus();
+                mTimePicker.finishScroll();
+                mCallback.onTimeSet(mTimePicker, mTimePicker.getCurrentHour(),
+                        mTimePicker.getCurrentMinute(), mTimePicker.getCurrentSeconds());
+            } finally {
+                mTimings.endSelection();
+            }
         }
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        mTimings.report();
+    }
+
     public void onTimeChanged(TimePicker view, int hourOfDay, int minute, int seconds) {
         updateTitle(hourOfDay, minute, seconds);
     }
 
-    public void updateTime(int hourOfDay, int minutOfHour, int seconds) {
+    public void updateTime(int hourOfDay, int minuteOfHour, int seconds) {
         mTimePicker.setCurrentHour(hourOfDay);
-        mTimePicker.setCurrentMinute(minutOfHour);
+        mTimePicker.setCurrentMinute(minuteOfHour);
         mTimePicker.setCurrentSecond(seconds);
     }
 
+    /**
+     * Set the time including milliseconds.
+     */
+    public void updateTime(int hourOfDay, int minuteOfHour, int seconds, int millis) {
+        updateTime(hourOfDay, minuteOfHour, seconds);
+        mTimePicker.setCurrentMillis(millis);
+    }
+
+    /**
+     * Show or hide the milliseconds column, hidden by default.
+     */
+    public void setShowMilliseconds(boolean showMilliseconds) {
+        mTimePicker.setShowMilliseconds(showMilliseconds);
+    }
+
     private void updateTitle(int hour, int minute, int seconds) {
         mCalendar.set(Calendar.HOUR_OF_DAY, hour);
         mCalendar.set(Calendar.MINUTE, minute);
@@ -182,6 +235,8 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
         state.putInt(HOUR, mTimePicker.getCurrentHour());
         state.putInt(MINUTE, mTimePicker.getCurrentMinute());
         state.putInt(SECONDS, mTimePicker.getCurrentSeconds());
+        state.putInt(MILLIS, mTimePicker.getCurrentMillis());
+        state.putBoolean(SHOW_MILLIS, mTimePicker.isShowingMilliseconds());
         state.putBoolean(IS_24_HOUR, mTimePicker.is24HourView());
         return state;
     }
@@ -195,6 +250,8 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
         mTimePicker.setCurrentHour(hour);
         mTimePicker.setCurrentMinute(minute);
         mTimePicker.setCurrentSecond(seconds);
+        mTimePicker.setCurrentMillis(savedInstanceState.getInt(MILLIS));
+        mTimePicker.setShowMilliseconds(savedInstanceState.getBoolean(SHOW_MILLIS));
         mTimePicker.setIs24HourView(savedInstanceState.getBoolean(IS_24_HOUR));
         mTimePicker.setOnTimeChangedListener(NO_OP_CHANGE_LISTENER);
         updateTitle(hour, minute, seconds);
@@ -203,42 +260,31 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
     /**
      * A view for selecting the time of day, in either 24 hour or AM/PM mode.
      * <p>
-     * The hour, each minute digit, each seconds digit, and AM/PM (if applicable) can be conrolled by
-     * vertical spinners.
-     * <p>
-     * The hour can be entered by keyboard input.  Entering in two digit hours
-     * can be accomplished by hitting two digits within a timeout of about a
-     * second (e.g. '1' then '2' to select 12).
+     * The hour, minute, seconds, optional milliseconds and AM/PM (if applicable) are
+     * controlled by vertical {@link WheelView}s.
      * <p>
-     * The minutes can be entered by entering single digits.
-     * The seconds can be entered by entering single digits.
+     * With a D-pad or keyboard, left and right move between the wheels and up and down step
+     * the focused one. Accessibility services read each wheel's value and can scroll it.
      * <p>
-     * Under AM/PM mode, the user can hit 'a', 'A", 'p' or 'P' to pick.
+     * Under AM/PM mode, the AM/PM button toggles between the two.
      * <p>
      * For a dialog using this view, see {@link android.app.TimePickerDialog}.
      */
     public static class TimePicker extends FrameLayout {
 
-        public NumberPicker.Formatter TWO_DIGIT_FORMATTER =
-                new NumberPicker.Formatter() {
-
-                    @Override
-                    public String format(int value) {
-                        return String.format("%02d", value);
-                    }
-                };
-
         // state
         private int mCurrentHour = 0; // 0-23
         private int mCurrentMinute = 0; // 0-59
         private int mCurrentSeconds = 0; // 0-59
+        private int mCurrentMillis = 0; // 0-999
         private Boolean mIs24HourView = false;
         private boolean mIsAm;
 
         // ui components
-        private final NumberPicker mHourPicker;
-        private final NumberPicker mMinutePicker;
-        private final NumberPicker mSecondPicker;
+        private final WheelView mHourPicker;
+        private final WheelView mMinutePicker;
+        private final WheelView mSecondPicker;
+        private final WheelView mMillisPicker;
         private final Button mAmPmButton;
         private final String mAmText;
         private final String mPmText;
@@ -264,11 +310,11 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
                     true);
 
             // hour
-            mHourPicker = (NumberPicker) findViewById(R.id.hour);
-            mHourPicker.setOnValueChangedListener(new NumberPicker.OnValueChangeListener() {
+            mHourPicker = (WheelView) findViewById(R.id.hour);
+            mHourPicker.setOnValueChangedListener(new WheelView.OnValueChangeListener() {
 
                 @Override
-                public void onValueChange(NumberPicker picker, int oldVal, int newVal) {
+                public void onValueChange(WheelView picker, int oldVal, int newVal) {
                     mCurrentHour = newVal;
                     if (!mIs24HourView) {
                         // adjust from [1-12] to [0-11] internally, with the times
@@ -286,33 +332,47 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
             });
 
             // digits of minute
-            mMinutePicker = (NumberPicker) findViewById(R.id.minute);
+            mMinutePicker = (WheelView) findViewById(R.id.minute);
             mMinutePicker.setMinValue(0);
             mMinutePicker.setMaxValue(59);
-            mMinutePicker.setFormatter(TWO_DIGIT_FORMATTER);
-            mMinutePicker.setOnValueChangedListener(new NumberPicker.OnValueChangeListener() {
+            mMinutePicker.setFormatter(WheelView.TWO_DIGIT_FORMATTER);
+            mMinutePicker.setOnValueChangedListener(new WheelView.OnValueChangeListener() {
                 @Override
-                public void onValueChange(NumberPicker spinner, int oldVal, int newVal) {
+                public void onValueChange(WheelView spinner, int oldVal, int newVal) {
                     mCurrentMinute = newVal;
                     onTimeChanged();
                 }
             });
 
             // digits of seconds
-            mSecondPicker = (NumberPicker) findViewById(R.id.seconds);
+            mSecondPicker = (WheelView) findViewById(R.id.seconds);
             mSecondPicker.setMinValue(0);
             mSecondPicker.setMaxValue(59);
-            mSecondPicker.setFormatter(TWO_DIGIT_FORMATTER);
-            mSecondPicker.setOnValueChangedListener(new NumberPicker.OnValueChangeListener() {
+            mSecondPicker.setFormatter(WheelView.TWO_DIGIT_FORMATTER);
+            mSecondPicker.setOnValueChangedListener(new WheelView.OnValueChangeListener() {
 
                 @Override
-                public void onValueChange(NumberPicker picker, int oldVal, int newVal) {
+                public void onValueChange(WheelView picker, int oldVal, int newVal) {
                     mCurrentSeconds = newVal;
                     onTimeChanged();
 
                 }
             });
 
+            // milliseconds, hidden unless requested
+            mMillisPicker = (WheelView) findViewById(R.id.millis);
+            mMillisPicker.setMinValue(0);
+            mMillisPicker.setMaxValue(999);
+            mMillisPicker.setFormatter(WheelView.THREE_DIGIT_FORMATTER);
+            mMillisPicker.setOnValueChangedListener(new WheelView.OnValueChangeListener() {
+
+                @Override
+                public void onValueChange(WheelView picker, int oldVal, int newVal) {
+                    mCurrentMillis = newVal;
+                    onTimeChanged();
+                }
+            });
+
             // am/pm
             mAmPmButton = (Button) findViewById(R.id.amPm);
 
@@ -328,6 +388,7 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
             setCurrentHour(cal.get(Calendar.HOUR_OF_DAY));
             setCurrentMinute(cal.get(Calendar.MINUTE));
             setCurrentSecond(cal.get(Calendar.SECOND));
+            setCurrentMillis(cal.get(Calendar.MILLISECOND));
 
             mIsAm = (mCurrentHour < 12);
 
@@ -369,6 +430,8 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
             super.setEnabled(enabled);
             mMinutePicker.setEnabled(enabled);
             mHourPicker.setEnabled(enabled);
+            mSecondPicker.setEnabled(enabled);
+            mMillisPicker.setEnabled(enabled);
             mAmPmButton.setEnabled(enabled);
         }
 
@@ -379,17 +442,23 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
 
             private final int mHour;
             private final int mMinute;
+            private final int mSeconds;
+            private final int mMillis;
 
-            private SavedState(Parcelable superState, int hour, int minute) {
+            private SavedState(Parcelable superState, int hour, int minute, int seconds, int millis) {
                 super(superState);
                 mHour = hour;
                 mMinute = minute;
+                mSeconds = seconds;
+                mMillis = millis;
             }
 
             private SavedState(Parcel in) {
                 super(in);
                 mHour = in.readInt();
                 mMinute = in.readInt();
+                mSeconds = in.readInt();
+                mMillis = in.readInt();
             }
 
             public int getHour() {
@@ -400,11 +469,21 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
                 return mMinute;
             }
 
+            public int getSeconds() {
+                return mSeconds;
+            }
+
+            public int getMillis() {
+                return mMillis;
+            }
+
             @Override
             public void writeToParcel(Parcel dest, int flags) {
                 super.writeToParcel(dest, flags);
                 dest.writeInt(mHour);
                 dest.writeInt(mMinute);
+                dest.writeInt(mSeconds);
+                dest.writeInt(mMillis);
             }
 
             public Creator<SavedState> CREATOR
@@ -422,7 +501,8 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
         @Override
         protected Parcelable onSaveInstanceState() {
             Parcelable superState = super.onSaveInstanceState();
-            return new SavedState(superState, mCurrentHour, mCurrentMinute);
+            return new SavedState(superState, mCurrentHour, mCurrentMinute, mCurrentSeconds,
+                    mCurrentMillis);
         }
 
         @Override
@@ -431,6 +511,8 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
             super.onRestoreInstanceState(ss.getSuperState());
             setCurrentHour(ss.getHour());
             setCurrentMinute(ss.getMinute());
+            setCurrentSecond(ss.getSeconds());
+            setCurrentMillis(ss.getMillis());
         }
 
         /**
@@ -507,6 +589,44 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
             updateSecondsDisplay();
         }
 
+        /**
+         * @return The current millisecond (0-999).
+         */
+        public int getCurrentMillis() {
+            return mCurrentMillis;
+        }
+
+        /**
+         * Set the current millisecond, clamped to 0-999.
+         */
+        public void setCurrentMillis(int currentMillis) {
+            this.mCurrentMillis = Math.max(0, Math.min(999, currentMillis));
+            mMillisPicker.setValue(mCurrentMillis);
+            onTimeChanged();
+        }
+
+        /**
+         * Commits the values of wheels that are still flinging or snapping, see
+         * {@link WheelView#finishScroll()}.
+         */
+        public void finishScroll() {
+            mHourPicker.finishScroll();
+            mMinutePicker.finishScroll();
+            mSecondPicker.finishScroll();
+            mMillisPicker.finishScroll();
+        }
+
+        /**
+         * Show or hide the milliseconds column.
+         */
+        public void setShowMilliseconds(boolean showMilliseconds) {
+            mMillisPicker.setVisibility(showMilliseconds ? View.VISIBLE : View.GONE);
+        }
+
+        public boolean isShowingMilliseconds() {
+            return mMillisPicker.getVisibility() == View.VISIBLE;
+        }
+
         @Override
         public int getBaseline() {
             return mHourPicker.getBaseline();
@@ -532,7 +652,7 @@ public class TimePickerDialog extends AlertDialog implements OnClickListener {
             if (mIs24HourView) {
                 mHourPicker.setMinValue(0);
                 mHourPicker.setMaxValue(23);
-                mHourPicker.setFormatter(TWO_DIGIT_FORMATTER);
+                mHourPicker.setFormatter(WheelView.TWO_DIGIT_FORMATTER);
                 mAmPmButton.setVisibility(View.GONE);
             } else {
                 mHourPicker.setMinValue(1);
@@ -0,0 +1,556 @@
+package com.maxml.datetime.dialog;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Bundle;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.view.AccessibilityDelegateCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.accessibility.AccessibilityEvent;
+import android.widget.Scroller;
+
+import com.maxml.datetime.R;
+
+/**
+ * A vertical wheel for picking an int from a range, a lightweight replacement for
+ * {@link android.widget.NumberPicker}.
+ * <p>
+ * Only a handful of label slots exist, one per row that can be on screen. A slot is re-rendered
+ * into its char buffer when a new value scrolls into it, so large ranges such as 0-999 cost the
+ * same as 0-59. Dragging, flinging and snapping do not allocate per frame.
+ * <p>
+ * Like {@link android.widget.NumberPicker#setValue(int)}, {@link #setValue(int)} does not notify
+ * the {@link OnValueChangeListener}; user scrolls notify once the wheel comes to rest.
+ * <p>
+ * When focused, the up and down keys step the value. Accessibility services read the value and
+ * can scroll forward and backward.
+ */
+public class WheelView extends View {
+
+    /**
+     * Writes the label of a value into a char buffer.
+     */
+    public interface Formatter {
+
+        /**
+         * @param value the value to render.
+         * @param out   buffer of {@link #MAX_LABEL_LENGTH} chars.
+         * @return the number of chars written.
+         */
+        int format(int value, char[] out);
+    }
+
+    /**
+     * The callback interface used to indicate the wheel came to rest on a new value.
+     */
+    public interface OnValueChangeListener {
+
+        /**
+         * @param wheel  The view associated with this listener.
+         * @param oldVal The previous value.
+         * @param newVal The new value.
+         */
+        void onValueChange(WheelView wheel, int oldVal, int newVal);
+    }
+
+    public static final int MAX_LABEL_LENGTH = 11;
+
+    public static final Formatter TWO_DIGIT_FORMATTER = new DigitsFormatter(2);
+    public static final Formatter THREE_DIGIT_FORMATTER = new DigitsFormatter(3);
+    private static final Formatter PLAIN_FORMATTER = new DigitsFormatter(1);
+
+    // selected row plus one neighbour above and below
+    private static final int VISIBLE_ROWS = 3;
+    // a partially scrolled wheel shows one more row at each edge
+    private static final int SLOTS = VISIBLE_ROWS + 2;
+    private static final int ROW_HEIGHT_DP = 48;
+    private static final int WIDTH_DP = 64;
+    private static final int SNAP_DURATION = 200;
+    private static final int NO_POSITION = Integer.MIN_VALUE;
+
+    // range
+    private int mMinValue = 0;
+    private int mMaxValue = 0;
+    private boolean mWrapSelectorWheel = true;
+    private Formatter mFormatter = PLAIN_FORMATTER;
+
+    // scroll state, in pixels: position * row height of the centered row
+    private int mScrollY;
+    private int mValue;
+    private boolean mSnapping;
+
+    // recycled label slots, indexed by floorMod(position, SLOTS)
+    private final int[] mSlotPositions = new int[SLOTS];
+    private final char[][] mSlotChars = new char[SLOTS][MAX_LABEL_LENGTH];
+    private final int[] mSlotLengths = new int[SLOTS];
+    private final char[] mDescriptionChars = new char[MAX_LABEL_LENGTH];
+
+    // ui resources
+    private final Paint mTextPaint;
+    private final Paint mDividerPaint;
+    private final int mRowHeight;
+    private final int mDefaultWidth;
+    private final float mDividerHeight;
+    private final int mTouchSlop;
+    private final int mMinimumFlingVelocity;
+    private final int mMaximumFlingVelocity;
+    private final Scroller mScroller;
+
+    // touch
+    private VelocityTracker mVelocityTracker;
+    private float mLastY;
+    private float mDownY;
+    private boolean mDragging;
+
+    // callbacks
+    private OnValueChangeListener mOnValueChangeListener;
+
+    public WheelView(Context context) {
+        this(context, null);
+    }
+
+    public WheelView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public WheelView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+
+        float density = getResources().getDisplayMetrics().density;
+        mRowHeight = Math.round(ROW_HEIGHT_DP * density);
+        mDefaultWidth = Math.round(WIDTH_DP * density);
+        mDividerHeight = Math.max(1, density);
+
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+        mScroller = new Scroller(context);
+
+        mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mTextPaint.setTextAlign(Paint.Align.CENTER);
+        mTextPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 20,
+                getResources().getDisplayMetrics()));
+        mTextPaint.setColor(ThemeColors.resolve(context, android.R.attr.textColorPrimary,
+                0xFF000000));
+
+        mDividerPaint = new Paint();
+        mDividerPaint.setColor(ThemeColors.resolve(context, R.attr.colorAccent,
+                ContextCompat.getColor(context, R.color.colorAccent)));
+
+        invalidateSlots();
+        ViewCompat.setAccessibilityDelegate(this, new WheelAccessibilityDelegate());
+    }
+
+    public void setOnValueChangedListener(OnValueChangeListener onValueChangeListener) {
+        mOnValueChangeListener = onValueChangeListener;
+    }
+
+    public int getMinValue() {
+        return mMinValue;
+    }
+
+    public void setMinValue(int minValue) {
+        mMinValue = minValue;
+        if (mMaxValue < minValue) {
+            mMaxValue = minValue;
+        }
+        onRangeChanged();
+    }
+
+    public int getMaxValue() {
+        return mMaxValue;
+    }
+
+    public void setMaxValue(int maxValue) {
+        mMaxValue = maxValue;
+        if (mMinValue > maxValue) {
+            mMinValue = maxValue;
+        }
+        onRangeChanged();
+    }
+
+    public boolean getWrapSelectorWheel() {
+        return mWrapSelectorWheel;
+    }
+
+    public void setWrapSelectorWheel(boolean wrapSelectorWheel) {
+        mWrapSelectorWheel = wrapSelectorWheel;
+        invalidateSlots();
+        invalidate();
+    }
+
+    /**
+     * @param formatter the label format, or null for plain decimals.
+     */
+    public void setFormatter(Formatter formatter) {
+        mFormatter = formatter != null ? formatter : PLAIN_FORMATTER;
+        invalidateSlots();
+        invalidate();
+    }
+
+    public int getValue() {
+        return mValue;
+    }
+
+    /**
+     * Set the current value, clamped to the range. Stops any scrolling.
+     */
+    public void setValue(int value) {
+        mScroller.forceFinished(true);
+        mSnapping = false;
+        mValue = Math.max(mMinValue, Math.min(mMaxValue, value));
+        mScrollY = (mValue - mMinValue) * mRowHeight;
+        invalidate();
+    }
+
+    /**
+     * Ends a running fling or snap at the row it was heading for and commits that value,
+     * notifying the listener if it changed. Call before reading {@link #getValue()} when the
+     * wheel may still be moving, e.g. from a dialog's set button.
+     */
+    public void finishScroll() {
+        if (!mScroller.isFinished()) {
+            int finalY = mScroller.getFinalY();
+            mScroller.forceFinished(true);
+            scrollTo(finalY);
+        }
+        onScrollIdle();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = resolveSize(mDefaultWidth + getPaddingLeft() + getPaddingRight(),
+                widthMeasureSpec);
+        int height = resolveSize(VISIBLE_ROWS * mRowHeight + getPaddingTop() + getPaddingBottom(),
+                heightMeasureSpec);
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        float centerX = getPaddingLeft() + (getWidth() - getPaddingLeft() - getPaddingRight()) / 2f;
+        float centerY = getPaddingTop() + (getHeight() - getPaddingTop() - getPaddingBottom()) / 2f;
+        float textOffset = -(mTextPaint.ascent() + mTextPaint.descent()) / 2;
+
+        int centerPosition = floorDiv(mScrollY, mRowHeight);
+        int offset = mScrollY - centerPosition * mRowHeight;
+        int count = mMaxValue - mMinValue + 1;
+        for (int row = -SLOTS / 2; row <= SLOTS / 2; row++) {
+            int position = centerPosition + row;
+            if (!mWrapSelectorWheel && (position < 0 || position >= count)) {
+                continue;
+            }
+            int slot = bindSlot(position, count);
+            float y = centerY + row * mRowHeight - offset;
+            // fade rows with their distance from the center
+            float distance = Math.min(1f, Math.abs(y - centerY) / (mRowHeight * 1.5f));
+            mTextPaint.setAlpha((int) (255 * (1f - 0.7f * distance)));
+            canvas.drawText(mSlotChars[slot], 0, mSlotLengths[slot], centerX, y + textOffset,
+                    mTextPaint);
+        }
+        mTextPaint.setAlpha(255);
+
+        float halfRow = mRowHeight / 2f;
+        canvas.drawRect(getPaddingLeft(), centerY - halfRow, getWidth() - getPaddingRight(),
+                centerY - halfRow + mDividerHeight, mDividerPaint);
+        canvas.drawRect(getPaddingLeft(), centerY + halfRow - mDividerHeight,
+                getWidth() - getPaddingRight(), centerY + halfRow, mDividerPaint);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!isEnabled()) {
+            return false;
+        }
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(event);
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mScroller.forceFinished(true);
+                mSnapping = false;
+                mDownY = mLastY = event.getY();
+                mDragging = false;
+                getParent().requestDisallowInterceptTouchEvent(true);
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                float y = event.getY();
+                if (!mDragging && Math.abs(y - mDownY) > mTouchSlop) {
+                    mDragging = true;
+                    mLastY = y;
+                }
+                if (mDragging) {
+                    scrollTo(mScrollY + Math.round(mLastY - y));
+                    mLastY = y;
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (mDragging) {
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+                    int velocity = (int) mVelocityTracker.getYVelocity();
+                    if (Math.abs(velocity) > mMinimumFlingVelocity) {
+                        fling(-velocity);
+                    } else {
+                        snap();
+                    }
+                } else {
+                    // a tap above or below the center row steps to that row, any tap settles a
+                    // wheel whose fling or snap the down event stopped between two rows
+                    float centerY = getPaddingTop()
+                            + (getHeight() - getPaddingTop() - getPaddingBottom()) / 2f;
+                    int rows = Math.round((event.getY() - centerY) / mRowHeight);
+                    int snapped = Math.round((float) mScrollY / mRowHeight) * mRowHeight;
+                    smoothScrollBy(snapped + rows * mRowHeight - mScrollY);
+                }
+                recycleVelocityTracker();
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                snap();
+                recycleVelocityTracker();
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        if (isEnabled()) {
+            int rows = keyCode == KeyEvent.KEYCODE_DPAD_UP ? -1
+                    : keyCode == KeyEvent.KEYCODE_DPAD_DOWN ? 1 : 0;
+            if (rows != 0 && canStep(rows)) {
+                step(rows);
+                return true;
+            }
+        }
+        // at an end of the range, let the key move the focus
+        return super.onKeyDown(keyCode, event);
+    }
+
+    @Override
+    public void computeScroll() {
+        if (!mScroller.computeScrollOffset()) {
+            return;
+        }
+        scrollTo(mScroller.getCurrY());
+        if (mScroller.isFinished()) {
+            if (mSnapping) {
+                onScrollIdle();
+            } else {
+                snap();
+            }
+        } else {
+            ViewCompat.postInvalidateOnAnimation(this);
+        }
+    }
+
+    private void fling(int velocity) {
+        int min = mWrapSelectorWheel ? Integer.MIN_VALUE / 2 : 0;
+        int max = mWrapSelectorWheel ? Integer.MAX_VALUE / 2 : (mMaxValue - mMinValue) * mRowHeight;
+        mSnapping = false;
+        mScroller.fling(0, mScrollY, 0, velocity, 0, 0, min, max);
+        ViewCompat.postInvalidateOnAnimation(this);
+    }
+
+    /**
+     * @return whether the value can step by the rows, i.e. the wheel wraps or is not at that end.
+     */
+    private boolean canStep(int rows) {
+        return mWrapSelectorWheel || (rows < 0 ? mValue > mMinValue : mValue < mMaxValue);
+    }
+
+    /**
+     * Scrolls by whole rows from where a running snap ends, so repeated steps add up.
+     */
+    private void step(int rows) {
+        int from = mSnapping && !mScroller.isFinished() ? mScroller.getFinalY() : mScrollY;
+        int snapped = Math.round((float) from / mRowHeight) * mRowHeight;
+        mScroller.forceFinished(true);
+        smoothScrollBy(snapped + rows * mRowHeight - mScrollY);
+    }
+
+    private void snap() {
+        int target = Math.round((float) mScrollY / mRowHeight) * mRowHeight;
+        smoothScrollBy(target - mScrollY);
+    }
+
+    private void smoothScrollBy(int dy) {
+        if (!mWrapSelectorWheel) {
+            int max = (mMaxValue - mMinValue) * mRowHeight;
+            dy = Math.max(-mScrollY, Math.min(max - mScrollY, dy));
+        }
+        if (dy == 0) {
+            onScrollIdle();
+            return;
+        }
+        mSnapping = true;
+        mScroller.startScroll(0, mScrollY, 0, dy, SNAP_DURATION);
+        ViewCompat.postInvalidateOnAnimation(this);
+    }
+
+    private void scrollTo(int scrollY) {
+        if (!mWrapSelectorWheel) {
+            scrollY = Math.max(0, Math.min((mMaxValue - mMinValue) * mRowHeight, scrollY));
+        }
+        if (scrollY != mScrollY) {
+            mScrollY = scrollY;
+            invalidate();
+        }
+    }
+
+    private void onScrollIdle() {
+        mSnapping = false;
+        int count = mMaxValue - mMinValue + 1;
+        int index = floorMod(floorDiv(mScrollY + mRowHeight / 2, mRowHeight), count);
+        int oldValue = mValue;
+        mValue = mMinValue + index;
+        // keep the scroll offset small after wrapping around
+        mScrollY = index * mRowHeight;
+        invalidateSlots();
+        invalidate();
+        if (oldValue != mValue) {
+            sendAccessibilityEvent(AccessibilityEvent.TYPE_VIEW_SELECTED);
+            if (mOnValueChangeListener != null) {
+                mOnValueChangeListener.onValueChange(this, oldValue, mValue);
+            }
+        }
+    }
+
+    private void onRangeChanged() {
+        invalidateSlots();
+        setValue(mValue);
+    }
+
+    private void recycleVelocityTracker() {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        mDragging = false;
+    }
+
+    /**
+     * @return the slot holding the label of the position, rendering it if the slot held another.
+     */
+    private int bindSlot(int position, int count) {
+        int slot = floorMod(position, SLOTS);
+        if (mSlotPositions[slot] != position) {
+            mSlotPositions[slot] = position;
+            mSlotLengths[slot] = mFormatter.format(mMinValue + floorMod(position, count),
+                    mSlotChars[slot]);
+        }
+        return slot;
+    }
+
+    private void invalidateSlots() {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            mSlotPositions[slot] = NO_POSITION;
+        }
+    }
+
+    private String describeValue() {
+        return new String(mDescriptionChars, 0, mFormatter.format(mValue, mDescriptionChars));
+    }
+
+    private static int floorDiv(int x, int y) {
+        int q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
+    }
+
+    private static int floorMod(int x, int y) {
+        return x - floorDiv(x, y) * y;
+    }
+
+    /**
+     * Reports the value and handles scroll actions, like {@link android.widget.NumberPicker}.
+     */
+    private class WheelAccessibilityDelegate extends AccessibilityDelegateCompat {
+
+        @Override
+        public void onInitializeAccessibilityNodeInfo(View host, AccessibilityNodeInfoCompat info) {
+            super.onInitializeAccessibilityNodeInfo(host, info);
+            info.setClassName(WheelView.class.getName());
+            info.setText(describeValue());
+            info.setScrollable(true);
+            if (isEnabled() && canStep(-1)) {
+                info.addAction(AccessibilityNodeInfoCompat.ACTION_SCROLL_BACKWARD);
+            }
+            if (isEnabled() && canStep(1)) {
+                info.addAction(AccessibilityNodeInfoCompat.ACTION_SCROLL_FORWARD);
+            }
+        }
+
+        @Override
+        public void onInitializeAccessibilityEvent(View host, AccessibilityEvent event) {
+            super.onInitializeAccessibilityEvent(host, event);
+            event.setClassName(WheelView.class.getName());
+            event.setScrollable(true);
+            event.setItemCount(mMaxValue - mMinValue + 1);
+            event.setCurrentItemIndex(mValue - mMinValue);
+        }
+
+        @Override
+        public void onPopulateAccessibilityEvent(View host, AccessibilityEvent event) {
+            super.onPopulateAccessibilityEvent(host, event);
+            event.getText().add(describeValue());
+        }
+
+        @Override
+        public boolean performAccessibilityAction(View host, int action, Bundle args) {
+            int rows = action == AccessibilityNodeInfoCompat.ACTION_SCROLL_FORWARD ? 1
+                    : action == AccessibilityNodeInfoCompat.ACTION_SCROLL_BACKWARD ? -1 : 0;
+            if (rows != 0 && isEnabled() && canStep(rows)) {
+                step(rows);
+                return true;
+            }
+            return super.performAccessibilityAction(host, action, args);
+        }
+    }
+
+    /**
+     * Decimal labels zero-padded to a minimum number of digits.
+     */
+    private static final class DigitsFormatter implements Formatter {
+
+        private final int mMinDigits;
+
+        DigitsFormatter(int minDigits) {
+            mMinDigits = minDigits;
+        }
+
+        @Override
+        public int format(int value, char[] out) {
+            int length = 0;
+            long rest = value;
+            if (rest < 0) {
+                out[length++] = '-';
+                rest = -rest;
+            }
+            int digits = 1;
+            for (long bound = 10; bound <= rest; bound *= 10) {
+                digits++;
+            }
+            digits = Math.max(digits, mMinDigits);
+            for (int i = length + digits - 1; i >= length; i--) {
+                out[i] = (char) ('0' + rest % 10);
+                rest /= 10;
+            }
+            return length + digits;
+        }
+    }
+}
@@ -1,56 +1,82 @@
 package com.maxml.datetime.fragment;
 
-import android.app.DatePickerDialog;
 import android.app.Dialog;
+import android.content.Context;
 import android.os.Bundle;
 import android.support.v4.app.DialogFragment;
-import android.widget.DatePicker;
-import android.widget.TextView;
 
-import com.maxml.datetime.DateTimeFactory;
+import com.maxml.datetime.dialog.DatePickerDialog;
 import com.maxml.datetime.util.DateFormatter;
+import com.maxml.datetime.util.DateMath;
+import com.maxml.datetime.util.ZoneOffsetCache;
 
-import java.util.Calendar;
-
+/**
+ * Picks the date of an epoch millis value, keeping its time of day. The value is kept in the
+ * arguments, the picker state is saved by the dialog, and the result goes to the
+ * {@link OnDateTimeSetListener} found when the fragment attaches. Fields are in UTC, like the
+ * strings of {@link DateFormatter}.
+ */
 // TODO: in wiki
 public class DatePickerFragment extends DialogFragment
         implements DatePickerDialog.OnDateSetListener {
 
-    private DateTimeFactory dialog;
-    private TextView dateView;
-    private Calendar calendar;
+    private static final String MILLIS = "millis";
+    private static final ZoneOffsetCache ZONE = ZoneOffsetCache.UTC;
+
+    // looked up on every attach, so no listener outlives its host
+    private OnDateTimeSetListener listener;
 
-    // TODO: Fragment#getBundle
-    public void setInfo(DateTimeFactory dialog, TextView dateView, Calendar calendar) {
-        this.dialog = dialog;
-        this.dateView = dateView;
-        this.calendar = calendar;
+    /**
+     * @param millis the initial date and time.
+     */
+    public static DatePickerFragment newInstance(long millis) {
+        DatePickerFragment fragment = new DatePickerFragment();
+        Bundle args = new Bundle();
+        args.putLong(MILLIS, millis);
+        fragment.setArguments(args);
+        return fragment;
     }
 
     @Override
-    public Dialog onCreateDialog(Bundle savedInstanceState) {
-        // Use the current date as the default date in the picker
-        final Calendar c = Calendar.getInstance();
-        int year = c.get(Calendar.YEAR);
-        int month = c.get(Calendar.MONTH);
-        int day = c.get(Calendar.DAY_OF_MONTH);
-
-        // Create a new instance of DatePickerDialog and return it
-        return new DatePickerDialog(getActivity(), this, year, month, day);
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        listener = PickerListeners.find(this);
     }
 
     @Override
-    public void onDateSet(DatePicker view, int year, int month, int day) {
-        // Do something with the date chosen by the user
-        calendar.set(Calendar.YEAR, year);
-        calendar.set(Calendar.MONTH, month);
-        calendar.set(Calendar.DAY_OF_MONTH, day);
+    public void onDetach() {
+        super.onDetach();
+        listener = null;
+    }
 
-        dateView.setText(DateFormatter.toUiString(calendar.getTime()));
+    @Override
+    public Dialog onCreateDialog(Bundle savedInstanceState) {
+        long millis = getMillis();
+        return new DatePickerDialog(getActivity(), this, DateMath.year(millis, ZONE),
+                DateMath.month(millis, ZONE), DateMath.dayOfMonth(millis, ZONE));
+    }
+
+    @Override
+    public void onDateSet(DatePickerDialog.MonthView view, int year, int month, int day) {
+        long millis = DateMath.toMillis(year, month, day, 0, 0, 0, 0, ZONE)
+                + DateMath.millisOfDay(getMillis(), ZONE);
+        setMillis(millis);
 
-        // TODO: wtf public method
-        dialog.chooseDialog();
+        if (listener != null) {
+            listener.onDateTimeSet(getTag(), millis);
+        }
     }
 
+    private long getMillis() {
+        Bundle args = getArguments();
+        return args != null && args.containsKey(MILLIS)
+                ? args.getLong(MILLIS) : System.currentTimeMillis();
+    }
 
+    private void setMillis(long millis) {
+        Bundle args = getArguments();
+        if (args != null) {
+            args.putLong(MILLIS, millis);
+        }
+    }
 }
@@ -0,0 +1,16 @@
+package com.maxml.datetime.fragment;
+
+/**
+ * Receives the date and time picked in a {@link DatePickerFragment} or
+ * {@link TimePickerFragment}. Implemented by the target fragment, the parent fragment or the
+ * activity, which are looked up whenever the picker attaches, so no reference is kept across
+ * recreation.
+ */
+public interface OnDateTimeSetListener {
+
+    /**
+     * @param tag    the tag of the picker fragment, to tell pickers apart.
+     * @param millis the picked date and time as epoch millis.
+     */
+    void onDateTimeSet(String tag, long millis);
+}
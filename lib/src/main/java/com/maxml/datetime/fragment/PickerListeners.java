@@ -0,0 +1,26 @@
+package com.maxml.datetime.fragment;
+
+import android.support.v4.app.Fragment;
+
+final class PickerListeners {
+
+    private PickerListeners() {
+    }
+
+    /**
+     * @return the target fragment, parent fragment or activity that implements the listener,
+     * in this order, or null.
+     */
+    static OnDateTimeSetListener find(Fragment fragment) {
+        if (fragment.getTargetFragment() instanceof OnDateTimeSetListener) {
+            return (OnDateTimeSetListener) fragment.getTargetFragment();
+        }
+        if (fragment.getParentFragment() instanceof OnDateTimeSetListener) {
+            return (OnDateTimeSetListener) fragment.getParentFragment();
+        }
+        if (fragment.getActivity() instanceof OnDateTimeSetListener) {
+            return (OnDateTimeSetListener) fragment.getActivity();
+        }
+        return null;
+    }
+}
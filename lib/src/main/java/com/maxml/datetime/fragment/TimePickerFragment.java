@@ -1,55 +1,87 @@
 package com.maxml.datetime.fragment;
 
 import android.app.Dialog;
+import android.content.Context;
 import android.os.Bundle;
 import android.support.v4.app.DialogFragment;
-import android.widget.TextView;
 
-import com.maxml.datetime.DateTimeFactory;
 import com.maxml.datetime.dialog.TimePickerDialog;
 import com.maxml.datetime.util.DateFormatter;
+import com.maxml.datetime.util.DateMath;
+import com.maxml.datetime.util.ZoneOffsetCache;
 
-import java.util.Calendar;
-
+/**
+ * Picks the time of day, down to milliseconds, of an epoch millis value, keeping its date. The
+ * value is kept in the arguments, the picker state is saved by the dialog, and the result goes
+ * to the {@link OnDateTimeSetListener} found when the fragment attaches. Fields are in UTC, like
+ * the strings of {@link DateFormatter}.
+ */
 public class TimePickerFragment extends DialogFragment implements TimePickerDialog.OnTimeSetListener {
 
-    private DateTimeFactory dialog;
-    private TextView dateView;
-    private Calendar calendar;
-
-    public void setInfo(DateTimeFactory dialog, TextView dateView, Calendar calendar) {
-        this.dialog = dialog;
-        this.dateView = dateView;
-        this.calendar = calendar;
-
-        // TODO: Fragment#getBundle
-//        // Creating a bundle object to pass currently set time to the fragment
-//        Bundle b = getArguments();
-//
-//        mHour = b.getInt("set_hour");
-//
-//        mMinute = b.getInt("set_minute");
+    private static final String MILLIS = "millis";
+    private static final ZoneOffsetCache ZONE = ZoneOffsetCache.UTC;
+
+    // looked up on every attach, so no listener outlives its host
+    private OnDateTimeSetListener listener;
+
+    /**
+     * @param millis the initial date and time.
+     */
+    public static TimePickerFragment newInstance(long millis) {
+        TimePickerFragment fragment = new TimePickerFragment();
+        Bundle args = new Bundle();
+        args.putLong(MILLIS, millis);
+        fragment.setArguments(args);
+        return fragment;
+    }
+
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        listener = PickerListeners.find(this);
+    }
+
+    @Override
+    public void onDetach() {
+        super.onDetach();
+        listener = null;
     }
 
     @Override
     public Dialog onCreateDialog(Bundle savedInstanceState) {
-        final Calendar c = Calendar.getInstance();
-        int hours = c.get(Calendar.HOUR_OF_DAY);
-        int minutes = c.get(Calendar.MINUTE);
-        int seconds = c.get(Calendar.SECOND);
+        int millisOfDay = DateMath.millisOfDay(getMillis(), ZONE);
+        int hours = (int) (millisOfDay / DateMath.MILLIS_PER_HOUR);
+        int minutes = (int) (millisOfDay / DateMath.MILLIS_PER_MINUTE % 60);
+        int seconds = (int) (millisOfDay / DateMath.MILLIS_PER_SECOND % 60);
 
-        return new TimePickerDialog(getActivity(), this, hours, minutes, seconds, true);
+        TimePickerDialog dialog = new TimePickerDialog(getActivity(), this, hours, minutes, seconds, true);
+        dialog.setShowMilliseconds(true);
+        dialog.updateTime(hours, minutes, seconds, (int) (millisOfDay % DateMath.MILLIS_PER_SECOND));
+        return dialog;
     }
 
     @Override
     public void onTimeSet(TimePickerDialog.TimePicker view, int hourOfDay, int minute, int seconds) {
-        calendar.set(Calendar.HOUR_OF_DAY, hourOfDay);
-        calendar.set(Calendar.MINUTE, minute);
-        calendar.set(Calendar.SECOND, seconds);
+        long millis = DateMath.startOfDay(getMillis(), ZONE) + hourOfDay * DateMath.MILLIS_PER_HOUR
+                + minute * DateMath.MILLIS_PER_MINUTE + seconds * DateMath.MILLIS_PER_SECOND
+                + view.getCurrentMillis();
+        setMillis(millis);
 
-        dateView.setText(DateFormatter.toUiString(calendar.getTime()));
+        if (listener != null) {
+            listener.onDateTimeSet(getTag(), millis);
+        }
+    }
+
+    private long getMillis() {
+        Bundle args = getArguments();
+        return args != null && args.containsKey(MILLIS)
+                ? args.getLong(MILLIS) : System.currentTimeMillis();
+    }
 
-        // TODO: wtf public method
-        dialog.chooseDialog();
+    private void setMillis(long millis) {
+        Bundle args = getArguments();
+        if (args != null) {
+            args.putLong(MILLIS, millis);
+        }
     }
 }
@@ -0,0 +1,315 @@
+package com.maxml.datetime.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link DateFormatter} parse and format calls off the main thread.
+ * <p>
+ * Requests are queued and processed in batches of up to {@link #MAX_BATCH} on a background
+ * executor. Identical requests that are still queued or being processed share one computation.
+ * The results of a batch are delivered to their callbacks in a single post to the main thread.
+ * <p>
+ * At most {@link #MAX_PENDING} requests wait in the queue. Beyond that the oldest are dropped,
+ * and their callbacks get null, as they do when the executor rejects a batch.
+ */
+public class AsyncDateFormatter {
+
+    /**
+     * Receives a result on the main thread.
+     */
+    public interface Callback<T> {
+
+        /**
+         * @param result the value, or null if the input could not be parsed, the call failed or
+         *               the request was dropped.
+         */
+        void onResult(T result);
+    }
+
+    public static final int MAX_BATCH = 128;
+    public static final int MAX_PENDING = 4 * MAX_BATCH;
+
+    private static final String TAG = "AsyncDateFormatter";
+
+    private static final int PARSE = 0;
+    private static final int PARSE_UI = 1;
+    private static final int FORMAT = 2;
+    private static final int FORMAT_UI = 3;
+
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Object lock = new Object();
+    // queued requests in arrival order, and the ones a worker has taken
+    private final LinkedHashMap<Request, Request> pending = new LinkedHashMap<Request, Request>();
+    private final HashMap<Request, Request> inFlight = new HashMap<Request, Request>();
+    private boolean scheduled;
+    private boolean shutdown;
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            processBatch();
+        }
+    };
+
+    /**
+     * Uses a single background thread that exits when idle.
+     */
+    public AsyncDateFormatter() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                }, "AsyncDateFormatter");
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+        this.ownsExecutor = true;
+    }
+
+    /**
+     * @param executor runs the batches, at most one at a time is submitted. It is never called
+     *                 while a lock is held, so it may run the batch before returning.
+     */
+    public AsyncDateFormatter(Executor executor) {
+        this.executor = executor;
+        this.ownsExecutor = false;
+    }
+
+    /**
+     * Async {@link DateFormatter#toDate(String)}.
+     */
+    public void parse(String date, Callback<Date> callback) {
+        submit(PARSE, date, callback);
+    }
+
+    /**
+     * Async {@link DateFormatter#fromUIStringToDate(String)}.
+     */
+    public void parseUi(String date, Callback<Date> callback) {
+        submit(PARSE_UI, date, callback);
+    }
+
+    /**
+     * Async {@link DateFormatter#toString(Date)}.
+     */
+    public void format(Date date, Callback<String> callback) {
+        submit(FORMAT, date.getTime(), callback);
+    }
+
+    /**
+     * Async {@link DateFormatter#toUiString(Date)}.
+     */
+    public void formatUi(Date date, Callback<String> callback) {
+        submit(FORMAT_UI, date.getTime(), callback);
+    }
+
+    /**
+     * Drops queued requests and stops the default executor. Results of a batch that is
+     * already running are not delivered.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            pending.clear();
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+        if (ownsExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    private void submit(int kind, Object input, Callback<?> callback) {
+        Request key = new Request(kind, input);
+        List<Request> dropped = null;
+        boolean schedule;
+        synchronized (lock) {
+            if (shutdown) {
+                throw new IllegalStateException("AsyncDateFormatter is shut down");
+            }
+            Request request = inFlight.get(key);
+            if (request == null) {
+                request = pending.get(key);
+            }
+            if (request == null) {
+                request = key;
+                if (pending.size() >= MAX_PENDING) {
+                    dropped = removePending(pending.size() - MAX_PENDING + 1);
+                }
+                pending.put(request, request);
+            }
+            request.callbacks.add(callback);
+
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (dropped != null) {
+            post(dropped);
+        }
+        if (schedule) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(drain);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Executor rejected a batch, failing the queued requests", e);
+            List<Request> failed;
+            synchronized (lock) {
+                scheduled = false;
+                if (shutdown) {
+                    return;
+                }
+                failed = removePending(pending.size());
+            }
+            post(failed);
+        }
+    }
+
+    // the oldest queued requests, called with the lock held
+    private List<Request> removePending(int count) {
+        List<Request> removed = new ArrayList<Request>(count);
+        Iterator<Request> it = pending.keySet().iterator();
+        while (it.hasNext() && removed.size() < count) {
+            removed.add(it.next());
+            it.remove();
+        }
+        return removed;
+    }
+
+    private void processBatch() {
+        final List<Request> batch;
+        synchronized (lock) {
+            batch = removePending(Math.min(MAX_BATCH, pending.size()));
+            for (Request request : batch) {
+                inFlight.put(request, request);
+            }
+        }
+
+        try {
+            for (Request request : batch) {
+                try {
+                    request.compute();
+                } catch (RuntimeException e) {
+                    // the callbacks get null, as for text that does not parse
+                    Log.w(TAG, "Failed to compute " + request.input, e);
+                    request.result = null;
+                }
+            }
+        } finally {
+            boolean stopped;
+            boolean schedule;
+            synchronized (lock) {
+                // callbacks attached while computing are still picked up below
+                for (Request request : batch) {
+                    inFlight.remove(request);
+                }
+                stopped = shutdown;
+                scheduled = !stopped && !pending.isEmpty();
+                schedule = scheduled;
+            }
+            if (!stopped) {
+                // before the next batch, which the executor may run right away
+                post(batch);
+                if (schedule) {
+                    schedule();
+                }
+            }
+        }
+    }
+
+    private void post(final List<Request> requests) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Request request : requests) {
+                    request.deliver();
+                }
+            }
+        });
+    }
+
+    private static final class Request {
+
+        final int kind;
+        final Object input;
+        final List<Callback<?>> callbacks = new ArrayList<Callback<?>>(1);
+        Object result;
+
+        Request(int kind, Object input) {
+            this.kind = kind;
+            this.input = input;
+        }
+
+        void compute() {
+            switch (kind) {
+                case PARSE:
+                    result = DateFormatter.toDate((String) input);
+                    break;
+                case PARSE_UI:
+                    result = DateFormatter.fromUIStringToDate((String) input);
+                    break;
+                case FORMAT:
+                    result = DateFormatter.toString(new Date((Long) input));
+                    break;
+                default:
+                    result = DateFormatter.toUiString(new Date((Long) input));
+                    break;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void deliver() {
+            for (int i = 0; i < callbacks.size(); i++) {
+                Object value = result;
+                if (i > 0 && value instanceof Date) {
+                    // every caller gets its own mutable Date
+                    value = new Date(((Date) value).getTime());
+                }
+                ((Callback<Object>) callbacks.get(i)).onResult(value);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Request)) {
+                return false;
+            }
+            Request other = (Request) o;
+            return kind == other.kind && input.equals(other.input);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * kind + input.hashCode();
+        }
+    }
+}
@@ -16,42 +16,41 @@ public class DateFormatter {
     // TODO: send here
     private static String UI_REQUEST_DATE_PATTERN = "yyyy-MM-dd HH:mm:ss.SSS z";
 
-    public static String toString(Date date) {
-        SimpleDateFormat formatter = new SimpleDateFormat(DEFAULT_DATE_PATTERN);
-        formatter.setTimeZone(TimeZone.getTimeZone("GMT"));
+    private static volatile ParseCache parseCache;
+    private static volatile ParseCache uiParseCache;
 
-        return formatter.format(date);
+    /**
+     * Caches the results of {@link #toDate(String)}, off by default.
+     *
+     * @param cache the cache, or null to parse every call.
+     */
+    public static void setParseCache(ParseCache cache) {
+        parseCache = cache;
     }
 
-    public static Date toDate(String date) {
-        SimpleDateFormat formatter = new SimpleDateFormat(DEFAULT_DATE_PATTERN);
-        formatter.setTimeZone(TimeZone.getTimeZone("GMT"));
+    /**
+     * Caches the results of {@link #fromUIStringToDate(String)}, off by default.
+     *
+     * @param cache the cache, or null to parse every call.
+     */
+    public static void setUiParseCache(ParseCache cache) {
+        uiParseCache = cache;
+    }
 
-        try {
-            return formatter.parse(date);
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-        return null;
+    public static String toString(Date date) {
+        return format(DEFAULT_DATE_PATTERN, date);
     }
 
-    public static String toUiString(Date date) {
-        SimpleDateFormat formatter = new SimpleDateFormat(UI_REQUEST_DATE_PATTERN);
-        formatter.setTimeZone(TimeZone.getTimeZone("GMT"));
+    public static Date toDate(String date) {
+        return parse(DEFAULT_DATE_PATTERN, parseCache, date);
+    }
 
-        return formatter.format(date);
+    public static String toUiString(Date date) {
+        return format(UI_REQUEST_DATE_PATTERN, date);
     }
 
     public static Date fromUIStringToDate(String date) {
-        SimpleDateFormat formatter = new SimpleDateFormat(UI_REQUEST_DATE_PATTERN);
-        formatter.setTimeZone(TimeZone.getTimeZone("GMT"));
-
-        try {
-            return formatter.parse(date);
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-        return null;
+        return parse(UI_REQUEST_DATE_PATTERN, uiParseCache, date);
     }
 
     public static Calendar toUiCalendar(String date) {
@@ -74,4 +73,33 @@ public class DateFormatter {
                 calendar.get(Calendar.MILLISECOND)
         };
     }
+
+    private static String format(String pattern, Date date) {
+        SimpleDateFormat formatter = new SimpleDateFormat(pattern);
+        formatter.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        return formatter.format(date);
+    }
+
+    private static Date parse(String pattern, ParseCache cache, String date) {
+        if (cache != null) {
+            Long millis = cache.get(date);
+            if (millis != null) {
+                return new Date(millis);
+            }
+        }
+        SimpleDateFormat formatter = new SimpleDateFormat(pattern);
+        formatter.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        try {
+            Date result = formatter.parse(date);
+            if (cache != null) {
+                cache.put(date, result.getTime());
+            }
+            return result;
+        } catch (ParseException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
 }
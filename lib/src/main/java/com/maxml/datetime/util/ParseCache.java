@@ -0,0 +1,172 @@
+package com.maxml.datetime.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread safe cache from date strings to epoch millis, to put in front of a parser.
+ * <p>
+ * Entries are spread over {@link #SHARDS} independently locked LRU maps, so concurrent lookups
+ * rarely contend and an eviction only touches one shard. Strings longer than
+ * {@link #MAX_KEY_LENGTH} are never cached, and the entry count never exceeds
+ * {@link #maxSize()}, whatever the input.
+ *
+ * @see DateFormatter#setParseCache(ParseCache)
+ */
+public final class ParseCache {
+
+    public static final int SHARDS = 8;
+    // longer than any valid DateFormatter input
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private final Shard[] shards = new Shard[SHARDS];
+    private final int maxSize;
+    // lookups of strings that are never cached, they belong to no shard
+    private final AtomicLong uncacheable = new AtomicLong();
+
+    /**
+     * @param maxSize entries kept at most, at least {@link #SHARDS}.
+     */
+    public ParseCache(int maxSize) {
+        if (maxSize < SHARDS) {
+            throw new IllegalArgumentException("maxSize < " + SHARDS + ": " + maxSize);
+        }
+        int perShard = maxSize / SHARDS;
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard(perShard);
+        }
+        this.maxSize = perShard * SHARDS;
+    }
+
+    /**
+     * @return the cached millis, or null on a miss.
+     */
+    public Long get(String text) {
+        if (text == null || text.length() > MAX_KEY_LENGTH) {
+            uncacheable.incrementAndGet();
+            return null;
+        }
+        Shard shard = shardOf(text);
+        synchronized (shard) {
+            Long millis = shard.map.get(text);
+            if (millis != null) {
+                shard.hits++;
+            } else {
+                shard.misses++;
+            }
+            return millis;
+        }
+    }
+
+    /**
+     * Caches a successful parse. Failed parses should not be cached.
+     */
+    public void put(String text, long millis) {
+        if (text == null || text.length() > MAX_KEY_LENGTH) {
+            return;
+        }
+        Shard shard = shardOf(text);
+        synchronized (shard) {
+            shard.put(text, millis);
+        }
+    }
+
+    public void clear() {
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.map.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.map.size();
+            }
+        }
+        return size;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return lookups that returned a value.
+     */
+    public long hitCount() {
+        long count = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                count += shard.hits;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return lookups that returned null, including uncacheable strings.
+     */
+    public long missCount() {
+        long count = uncacheable.get();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                count += shard.misses;
+            }
+        }
+        return count;
+    }
+
+    public long evictionCount() {
+        long count = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                count += shard.evictions;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        long hits = hitCount();
+        long accesses = hits + missCount();
+        int hitPercent = accesses != 0 ? (int) (100 * hits / accesses) : 0;
+        return "ParseCache[size=" + size() + ",maxSize=" + maxSize + ",hits=" + hits
+                + ",misses=" + (accesses - hits) + ",hitRate=" + hitPercent + "%]";
+    }
+
+    private Shard shardOf(String text) {
+        int h = text.hashCode();
+        // the low bits of similar timestamps differ little, mix in the high ones
+        h ^= (h >>> 16);
+        return shards[h & (SHARDS - 1)];
+    }
+
+    private static final class Shard {
+
+        // in access order, so the first key is the least recently used
+        final LinkedHashMap<String, Long> map = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        private final int maxSize;
+        long hits;
+        long misses;
+        long evictions;
+
+        Shard(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        void put(String text, long millis) {
+            map.put(text, millis);
+            if (map.size() > maxSize) {
+                Iterator<String> eldest = map.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+}
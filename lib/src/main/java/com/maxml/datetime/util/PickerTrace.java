@@ -0,0 +1,214 @@
+package com.maxml.datetime.util;
+
+import android.support.v4.os.TraceCompat;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Optional instrumentation of the date and time pickers, off by default.
+ * <p>
+ * With {@link #setEnabled(boolean)} the dialog phases and {@code DateTimeFactory} calls are
+ * wrapped in named {@link android.os.Trace} sections, visible in systrace on API 18+. With a
+ * {@link Listener} every picker dialog reports how long its phases took, e.g. to collect
+ * percentiles from the field.
+ */
+public final class PickerTrace {
+
+    /**
+     * Receives the timings of a picker dialog on the main thread when the dialog stops.
+     */
+    public interface Listener {
+
+        /**
+         * Durations are in nanoseconds, or {@link #NOT_MEASURED} for a phase that did not
+         * happen, e.g. the selection of a cancelled dialog.
+         *
+         * @param dialog          the dialog class, e.g. {@code "TimePickerDialog"}.
+         * @param constructNanos  the constructor, including inflation.
+         * @param inflateNanos    creating the dialog's content view.
+         * @param firstDrawNanos  from the start of the constructor until the first frame is
+         *                        about to be drawn.
+         * @param selectionNanos  from the click on the set button until the callback returned.
+         */
+        void onDialogTimings(String dialog, long constructNanos, long inflateNanos,
+                             long firstDrawNanos, long selectionNanos);
+    }
+
+    public static final long NOT_MEASURED = -1;
+
+    private static volatile boolean enabled;
+    private static volatile Listener listener;
+
+    private PickerTrace() {
+    }
+
+    /**
+     * @param enable whether to emit trace sections.
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * @param timingsListener the listener, or null to stop measuring dialogs.
+     */
+    public static void setListener(Listener timingsListener) {
+        listener = timingsListener;
+    }
+
+    /**
+     * Begins a trace section if enabled. Pass the result to {@link #endSection(boolean)} on the
+     * same thread, so sections stay balanced if tracing is toggled meanwhile.
+     *
+     * @param sectionName a constant name, at most 127 characters.
+     * @return whether a section was begun.
+     */
+    public static boolean beginSection(String sectionName) {
+        if (enabled) {
+            TraceCompat.beginSection(sectionName);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param began the result of the matching {@link #beginSection(String)}.
+     */
+    public static void endSection(boolean began) {
+        if (began) {
+            TraceCompat.endSection();
+        }
+    }
+
+    /**
+     * Starts measuring a dialog, call first thing in its constructor.
+     *
+     * @return a shared instance that does nothing if neither tracing nor a listener is on.
+     */
+    public static Timings start(String dialog) {
+        boolean measuring = listener != null;
+        boolean traced = enabled;
+        if (!measuring && !traced) {
+            return Timings.NONE;
+        }
+        Timings timings = new Timings(dialog, measuring, traced);
+        timings.beginSection(Timings.CONSTRUCT);
+        if (measuring) {
+            timings.constructStart = System.nanoTime();
+        }
+        return timings;
+    }
+
+    /**
+     * The phases of one dialog. Every method is cheap when no listener was set at
+     * {@link #start(String)}, and does nothing at all on the shared instance returned while
+     * tracing was off as well.
+     */
+    public static final class Timings {
+
+        private static final int CONSTRUCT = 0;
+        private static final int INFLATE = 1;
+        private static final int SELECTION = 2;
+
+        private static final Timings NONE = new Timings(null, false, false);
+
+        private final String dialog;
+        private final String[] sectionNames;
+        private final boolean measuring;
+        private boolean reported;
+
+        private long constructStart;
+        private long inflateStart;
+        private long selectionStart;
+        private long constructNanos = NOT_MEASURED;
+        private long inflateNanos = NOT_MEASURED;
+        private long firstDrawNanos = NOT_MEASURED;
+        private long selectionNanos = NOT_MEASURED;
+
+        private Timings(String dialog, boolean measuring, boolean traced) {
+            this.dialog = dialog;
+            this.measuring = measuring;
+            this.sectionNames = traced ? new String[]{dialog + ".construct",
+                    dialog + ".inflate", dialog + ".selection"} : null;
+        }
+
+        public void endConstruct() {
+            if (measuring) {
+                constructNanos = System.nanoTime() - constructStart;
+            }
+            endSection();
+        }
+
+        public void beginInflate() {
+            beginSection(INFLATE);
+            if (measuring) {
+                inflateStart = System.nanoTime();
+            }
+        }
+
+        public void endInflate() {
+            if (measuring) {
+                inflateNanos = System.nanoTime() - inflateStart;
+            }
+            endSection();
+        }
+
+        /**
+         * Records the first frame drawn with the view in its window.
+         */
+        public void watchFirstDraw(final View view) {
+            if (!measuring) {
+                return;
+            }
+            view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    firstDrawNanos = System.nanoTime() - constructStart;
+                    // attached by now, so this is the window's observer
+                    view.getViewTreeObserver().removeOnPreDrawListener(this);
+                    return true;
+                }
+            });
+        }
+
+        public void beginSelection() {
+            beginSection(SELECTION);
+            if (measuring) {
+                selectionStart = System.nanoTime();
+            }
+        }
+
+        public void endSelection() {
+            if (measuring) {
+                selectionNanos = System.nanoTime() - selectionStart;
+            }
+            endSection();
+        }
+
+        /**
+         * Delivers the timings to the listener, only the first call has an effect.
+         */
+        public void report() {
+            Listener timingsListener = listener;
+            if (!measuring || reported || timingsListener == null) {
+                return;
+            }
+            reported = true;
+            timingsListener.onDialogTimings(dialog, constructNanos, inflateNanos,
+                    firstDrawNanos, selectionNanos);
+        }
+
+        // sections are decided at start so they stay balanced if tracing is toggled meanwhile
+        private void beginSection(int phase) {
+            if (sectionNames != null) {
+                TraceCompat.beginSection(sectionNames[phase]);
+            }
+        }
+
+        private void endSection() {
+            if (sectionNames != null) {
+                TraceCompat.endSection();
+            }
+        }
+    }
+}
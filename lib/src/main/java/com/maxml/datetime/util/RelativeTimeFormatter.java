@@ -0,0 +1,140 @@
+package com.maxml.datetime.util;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.SparseArray;
+
+import com.maxml.datetime.R;
+
+/**
+ * Renders "5 minutes ago" / "in 2 hours" labels for epoch millis.
+ * <p>
+ * Every instant falls into a bucket (unit, count and direction) relative to {@code now}; labels
+ * are rendered once per bucket and cached. {@link #nextBoundary(long, long)} tells when the label
+ * of an instant changes next, so a list can compare {@link #bucketKey(long, long)} values and
+ * rebind only the rows whose text changed, then schedule its next tick for the earliest boundary.
+ * <p>
+ * Not thread-safe, meant to be used from the UI thread.
+ */
+public final class RelativeTimeFormatter {
+
+    private static final long MINUTE = DateMath.MILLIS_PER_MINUTE;
+    private static final long HOUR = DateMath.MILLIS_PER_HOUR;
+    private static final long DAY = DateMath.MILLIS_PER_DAY;
+    private static final long WEEK = 7 * DAY;
+    private static final long MONTH = 30 * DAY;
+    private static final long YEAR = 365 * DAY;
+
+    private static final int UNIT_NOW = 0;
+
+    // indexed by unit: now, minute, hour, day, week, month, year.
+    // Unit sizes double as the lower bound of each unit's range.
+    private static final long[] UNIT_SIZES = {0, MINUTE, HOUR, DAY, WEEK, MONTH, YEAR};
+    private static final long[] UNIT_ENDS = {MINUTE, HOUR, DAY, WEEK, MONTH, YEAR, Long.MAX_VALUE};
+
+    private static final int[] PLURALS_AGO = {0,
+            R.plurals.relative_minutes_ago, R.plurals.relative_hours_ago,
+            R.plurals.relative_days_ago, R.plurals.relative_weeks_ago,
+            R.plurals.relative_months_ago, R.plurals.relative_years_ago};
+    private static final int[] PLURALS_IN = {0,
+            R.plurals.relative_in_minutes, R.plurals.relative_in_hours,
+            R.plurals.relative_in_days, R.plurals.relative_in_weeks,
+            R.plurals.relative_in_months, R.plurals.relative_in_years};
+
+    private static final int MAX_COUNT = (1 << 20) - 1;
+    private static final int MAX_CACHED_LABELS = 512;
+
+    private final Resources resources;
+    private final SparseArray<String> labels = new SparseArray<String>();
+
+    public RelativeTimeFormatter(Context context) {
+        this.resources = context.getApplicationContext().getResources();
+    }
+
+    /**
+     * @return the label of {@code instant} as seen at {@code now}.
+     */
+    public String format(long instant, long now) {
+        int key = bucketKey(instant, now);
+        String label = labels.get(key);
+        if (label == null) {
+            label = render(key);
+            if (labels.size() >= MAX_CACHED_LABELS) {
+                labels.clear();
+            }
+            labels.put(key, label);
+        }
+        return label;
+    }
+
+    /**
+     * @return a key that is equal for two calls exactly when their labels are equal.
+     */
+    public int bucketKey(long instant, long now) {
+        long elapsed = now - instant;
+        boolean future = elapsed < 0;
+        long distance = future ? -elapsed : elapsed;
+        int unit = unitOf(distance);
+        if (unit == UNIT_NOW) {
+            return UNIT_NOW;
+        }
+        long count = distance / UNIT_SIZES[unit];
+        return ((int) Math.min(count, MAX_COUNT) << 4) | (unit << 1) | (future ? 1 : 0);
+    }
+
+    /**
+     * @return the first time after {@code now} at which the label of {@code instant} changes.
+     */
+    public long nextBoundary(long instant, long now) {
+        long elapsed = now - instant;
+        if (elapsed > -MINUTE && elapsed < MINUTE) {
+            return instant + MINUTE;
+        }
+        if (elapsed > 0) {
+            int unit = unitOf(elapsed);
+            long size = UNIT_SIZES[unit];
+            return instant + Math.min((elapsed / size + 1) * size, UNIT_ENDS[unit]);
+        }
+        long remaining = -elapsed;
+        long size = UNIT_SIZES[unitOf(remaining)];
+        // the label changes as soon as the remaining time drops below the shown amount
+        return instant - (remaining / size) * size + 1;
+    }
+
+    /**
+     * @return the earliest {@link #nextBoundary(long, long)} of the instants, or
+     * {@link Long#MAX_VALUE} if there are none.
+     */
+    public long nextBoundary(long[] instants, long now) {
+        long next = Long.MAX_VALUE;
+        for (long instant : instants) {
+            next = Math.min(next, nextBoundary(instant, now));
+        }
+        return next;
+    }
+
+    /**
+     * Drops the cached labels, e.g. after a locale change.
+     */
+    public void clear() {
+        labels.clear();
+    }
+
+    private String render(int key) {
+        int unit = (key >> 1) & 0x7;
+        if (unit == UNIT_NOW) {
+            return resources.getString(R.string.relative_just_now);
+        }
+        int count = key >>> 4;
+        int plurals = (key & 1) != 0 ? PLURALS_IN[unit] : PLURALS_AGO[unit];
+        return resources.getQuantityString(plurals, count, count);
+    }
+
+    private static int unitOf(long distance) {
+        int unit = UNIT_NOW;
+        while (distance >= UNIT_ENDS[unit]) {
+            unit++;
+        }
+        return unit;
+    }
+}
@@ -0,0 +1,165 @@
+package com.maxml.datetime.util;
+
+import org.threeten.bp.Instant;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneId;
+import org.threeten.bp.ZoneOffset;
+import org.threeten.bp.ZonedDateTime;
+import org.threeten.bp.format.DateTimeFormatter;
+
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts epoch millis and {@link DateFormatter} strings to ThreeTen types and back, without
+ * going through {@link java.util.Date}, {@link java.util.Calendar} or a string round-trip.
+ * <p>
+ * The library compiles against ThreeTenABP but does not ship it, apps that use this class add
+ * {@code com.jakewharton.threetenabp:threetenabp} to their own dependencies. Zones other than
+ * {@link ZoneOffset}s need its time zone database, so call
+ * {@code AndroidThreeTen.init(application)} first.
+ * <p>
+ * Zone ids are cached, strings are parsed by {@link DateCodec} without allocating and formatted
+ * with shared formatters. Like {@link DateFormatter}, strings are in GMT. Unlike it, dates are in
+ * the proleptic ISO calendar: {@link DateFormatter} switches to the Julian calendar before
+ * 1582-10-15, so earlier instants give other strings and earlier strings other instants. The two
+ * agree from 1582-10-15 to the end of 9999.
+ */
+public final class ThreeTenDates {
+
+    /**
+     * The {@link DateFormatter} default pattern, e.g. {@code 2016-07-27 15:48:06.158}.
+     */
+    public static final DateTimeFormatter DEFAULT_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS", Locale.US)
+                    .withZone(ZoneOffset.UTC);
+
+    /**
+     * The {@link DateFormatter} UI pattern, e.g. {@code 2016-07-27 15:48:06.158 GMT}. Only
+     * formats, parse UI strings with {@link #parseUiInstant(String)}.
+     */
+    public static final DateTimeFormatter UI_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS 'GMT'", Locale.US)
+                    .withZone(ZoneOffset.UTC);
+
+    // longest zone DateCodec reads is GMT+hh:mm
+    private static final int MAX_UI_LENGTH = DateCodec.DEFAULT_LENGTH + 10;
+
+    private static final ConcurrentHashMap<String, ZoneId> ZONE_IDS =
+            new ConcurrentHashMap<String, ZoneId>();
+    // per thread, so parsing copies the chars instead of encoding a new byte[]
+    private static final ThreadLocal<byte[]> ASCII = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[MAX_UI_LENGTH];
+        }
+    };
+
+    private ThreeTenDates() {
+    }
+
+    public static Instant toInstant(long millis) {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    /**
+     * @return the wall clock time of the instant in the zone.
+     */
+    public static LocalDateTime toLocalDateTime(long millis, ZoneId zone) {
+        Instant instant = Instant.ofEpochMilli(millis);
+        return LocalDateTime.ofEpochSecond(instant.getEpochSecond(), instant.getNano(),
+                zone.getRules().getOffset(instant));
+    }
+
+    public static ZonedDateTime toZonedDateTime(long millis, ZoneId zone) {
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), zone);
+    }
+
+    /**
+     * @return epoch millis of the wall clock time in the zone. A time skipped by a DST gap is
+     * shifted forward by the length of the gap, one repeated by an overlap is the earlier one.
+     */
+    public static long toMillis(LocalDateTime dateTime, ZoneId zone) {
+        ZoneOffset offset = zone.getRules().getOffset(dateTime);
+        return dateTime.toEpochSecond(offset) * DateMath.MILLIS_PER_SECOND
+                + dateTime.getNano() / 1000000;
+    }
+
+    /**
+     * @return the zone with the time zone's id, cached.
+     */
+    public static ZoneId toZoneId(TimeZone timeZone) {
+        String id = timeZone.getID();
+        ZoneId zone = ZONE_IDS.get(id);
+        if (zone == null) {
+            zone = ZoneId.of(id, ZoneId.SHORT_IDS);
+            ZONE_IDS.put(id, zone);
+        }
+        return zone;
+    }
+
+    /**
+     * @param date in the default pattern.
+     * @return the instant, or null if the string is invalid.
+     */
+    public static Instant parseInstant(String date) {
+        long millis = date.length() == DateCodec.DEFAULT_LENGTH
+                ? DateCodec.parseDefault(toAscii(date), 0) : DateCodec.INVALID;
+        return millis != DateCodec.INVALID ? Instant.ofEpochMilli(millis) : null;
+    }
+
+    /**
+     * @param date in the UI pattern.
+     * @return the instant, or null if the string is invalid.
+     */
+    public static Instant parseUiInstant(String date) {
+        int length = date.length();
+        long millis = length <= MAX_UI_LENGTH
+                ? DateCodec.parseUi(toAscii(date), 0, length) : DateCodec.INVALID;
+        return millis != DateCodec.INVALID ? Instant.ofEpochMilli(millis) : null;
+    }
+
+    /**
+     * @param date in the default pattern.
+     * @return the wall clock time in the zone, or null if the string is invalid.
+     */
+    public static LocalDateTime parseLocalDateTime(String date, ZoneId zone) {
+        Instant instant = parseInstant(date);
+        return instant != null ? toLocalDateTime(instant.toEpochMilli(), zone) : null;
+    }
+
+    /**
+     * @param date in the default pattern.
+     * @return the time in the zone, or null if the string is invalid.
+     */
+    public static ZonedDateTime parseZonedDateTime(String date, ZoneId zone) {
+        Instant instant = parseInstant(date);
+        return instant != null ? toZonedDateTime(instant.toEpochMilli(), zone) : null;
+    }
+
+    /**
+     * Same as {@link DateFormatter#toString(java.util.Date)} from 1582-10-15 on.
+     */
+    public static String format(Instant instant) {
+        return DEFAULT_FORMATTER.format(instant);
+    }
+
+    /**
+     * Same as {@link DateFormatter#toUiString(java.util.Date)} from 1582-10-15 on.
+     */
+    public static String formatUi(Instant instant) {
+        return UI_FORMATTER.format(instant);
+    }
+
+    // at most MAX_UI_LENGTH chars, non-ASCII chars become 0, which DateCodec rejects
+    private static byte[] toAscii(String date) {
+        int length = date.length();
+        byte[] bytes = ASCII.get();
+        for (int i = 0; i < length; i++) {
+            char c = date.charAt(i);
+            bytes[i] = c < 0x80 ? (byte) c : 0;
+        }
+        return bytes;
+    }
+}
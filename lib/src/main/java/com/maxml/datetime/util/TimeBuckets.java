@@ -0,0 +1,175 @@
+package com.maxml.datetime.util;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Truncates epoch millis to hour, day, week or month buckets of a time zone and counts them.
+ * <p>
+ * Bucket indices are consecutive longs (bucket {@code 0} contains 1970-01-01 00:00 local time),
+ * computed with integer arithmetic instead of a {@link Calendar} per value, so a histogram is
+ * a plain {@code int[]} indexed by {@code bucket - fromBucket}. Like truncating a
+ * {@link Calendar}, an hour repeated by a DST overlap falls into a single bucket. Instances are
+ * immutable and thread-safe.
+ */
+public final class TimeBuckets {
+
+    public static final int HOUR = 0;
+    public static final int DAY = 1;
+    public static final int WEEK = 2;
+    public static final int MONTH = 3;
+
+    // values per task, below this the split costs more than it saves
+    private static final int PARALLEL_CHUNK = 64 * 1024;
+
+    // 1970-01-01 was a Thursday, 0 = Sunday
+    private static final int EPOCH_DAY_OF_WEEK = 4;
+
+    private final int unit;
+    private final ZoneOffsetCache offsets;
+    private final int firstDayOfWeek;
+
+    public TimeBuckets(int unit, TimeZone zone) {
+        this(unit, zone, Calendar.getInstance(zone).getFirstDayOfWeek());
+    }
+
+    /**
+     * @param unit           one of {@link #HOUR}, {@link #DAY}, {@link #WEEK}, {@link #MONTH}.
+     * @param zone           zone whose wall clock defines the bucket boundaries.
+     * @param firstDayOfWeek start of a {@link #WEEK} bucket, {@link Calendar#SUNDAY} to
+     *                       {@link Calendar#SATURDAY}.
+     */
+    public TimeBuckets(int unit, TimeZone zone, int firstDayOfWeek) {
+        if (unit < HOUR || unit > MONTH) {
+            throw new IllegalArgumentException("Unknown unit " + unit);
+        }
+        if (firstDayOfWeek < Calendar.SUNDAY || firstDayOfWeek > Calendar.SATURDAY) {
+            throw new IllegalArgumentException("Unknown first day of week " + firstDayOfWeek);
+        }
+        this.unit = unit;
+        this.offsets = ZoneOffsetCache.of(zone);
+        this.firstDayOfWeek = firstDayOfWeek;
+    }
+
+    public int getUnit() {
+        return unit;
+    }
+
+    /**
+     * @return the index of the bucket containing the instant.
+     */
+    public long bucketOf(long utcMillis) {
+        long local = offsets.toLocal(utcMillis);
+        switch (unit) {
+            case HOUR:
+                return DateMath.floorDiv(local, DateMath.MILLIS_PER_HOUR);
+            case DAY:
+                return DateMath.floorDiv(local, DateMath.MILLIS_PER_DAY);
+            case WEEK:
+                long day = DateMath.floorDiv(local, DateMath.MILLIS_PER_DAY);
+                return DateMath.floorDiv(day + EPOCH_DAY_OF_WEEK - (firstDayOfWeek - 1), 7);
+            default:
+                int civil = DateMath.civilFromDays(DateMath.floorDiv(local, DateMath.MILLIS_PER_DAY));
+                return (DateMath.year(civil) - 1970) * 12L + DateMath.month(civil) - 1;
+        }
+    }
+
+    /**
+     * @return the first instant of the bucket, e.g. for labelling a histogram column.
+     */
+    public long bucketStart(long bucket) {
+        long local;
+        switch (unit) {
+            case HOUR:
+                local = bucket * DateMath.MILLIS_PER_HOUR;
+                break;
+            case DAY:
+                local = bucket * DateMath.MILLIS_PER_DAY;
+                break;
+            case WEEK:
+                long day = bucket * 7 - EPOCH_DAY_OF_WEEK + (firstDayOfWeek - 1);
+                local = day * DateMath.MILLIS_PER_DAY;
+                break;
+            default:
+                long year = 1970 + DateMath.floorDiv(bucket, 12);
+                int month = (int) DateMath.floorMod(bucket, 12) + 1;
+                local = DateMath.daysFromCivil((int) year, month, 1) * DateMath.MILLIS_PER_DAY;
+                break;
+        }
+        return offsets.toUtc(local);
+    }
+
+    /**
+     * Counts the instants per bucket. Instants outside
+     * {@code [fromBucket, fromBucket + bucketCount)} are ignored.
+     *
+     * @return counts, index {@code i} belongs to bucket {@code fromBucket + i}.
+     */
+    public int[] histogram(long[] utcMillis, long fromBucket, int bucketCount) {
+        int[] counts = new int[bucketCount];
+        accumulate(utcMillis, 0, utcMillis.length, fromBucket, counts);
+        return counts;
+    }
+
+    /**
+     * Like {@link #histogram(long[], long, int)}, but splits large inputs into chunks of 64Ki
+     * instants, counts them on the given executor and sums the partial histograms. The
+     * executor's threads decide the parallelism. Inputs of one chunk are counted on the calling
+     * thread.
+     */
+    public int[] histogram(final long[] utcMillis, final long fromBucket, final int bucketCount,
+                           ExecutorService executor) throws InterruptedException {
+        int tasks = (utcMillis.length + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        if (tasks <= 1) {
+            return histogram(utcMillis, fromBucket, bucketCount);
+        }
+
+        int chunk = PARALLEL_CHUNK;
+        List<Future<int[]>> partials = new ArrayList<Future<int[]>>(tasks);
+        for (int start = 0; start < utcMillis.length; start += chunk) {
+            final int from = start;
+            final int to = Math.min(utcMillis.length, start + chunk);
+            partials.add(executor.submit(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    int[] counts = new int[bucketCount];
+                    accumulate(utcMillis, from, to, fromBucket, counts);
+                    return counts;
+                }
+            }));
+        }
+
+        int[] counts = new int[bucketCount];
+        try {
+            for (Future<int[]> partial : partials) {
+                int[] part = partial.get();
+                for (int i = 0; i < bucketCount; i++) {
+                    counts[i] += part[i];
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<int[]> partial : partials) {
+                partial.cancel(true);
+            }
+        }
+        return counts;
+    }
+
+    private void accumulate(long[] utcMillis, int from, int to, long fromBucket, int[] counts) {
+        int bucketCount = counts.length;
+        for (int i = from; i < to; i++) {
+            long index = bucketOf(utcMillis[i]) - fromBucket;
+            if (index >= 0 && index < bucketCount) {
+                counts[(int) index]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.maxml.datetime;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.List;
+
+/**
+ * Records the layout resource of every inflation, including those of clones made for dialog
+ * and theme contexts.
+ */
+class CountingLayoutInflater extends LayoutInflater {
+
+    private static final String[] CLASS_PREFIXES = {
+            "android.widget.",
+            "android.webkit.",
+            "android.app."
+    };
+
+    private final List<Integer> inflated;
+
+    CountingLayoutInflater(LayoutInflater original, Context newContext, List<Integer> inflated) {
+        super(original, newContext);
+        this.inflated = inflated;
+    }
+
+    @Override
+    public LayoutInflater cloneInContext(Context newContext) {
+        return new CountingLayoutInflater(this, newContext, inflated);
+    }
+
+    @Override
+    public View inflate(int resource, ViewGroup root, boolean attachToRoot) {
+        inflated.add(resource);
+        return super.inflate(resource, root, attachToRoot);
+    }
+
+    // same lookup as the platform's PhoneLayoutInflater
+    @Override
+    protected View onCreateView(String name, AttributeSet attrs) throws ClassNotFoundException {
+        for (String prefix : CLASS_PREFIXES) {
+            try {
+                View view = createView(name, prefix, attrs);
+                if (view != null) {
+                    return view;
+                }
+            } catch (ClassNotFoundException e) {
+                // try the next prefix
+            }
+        }
+        return super.onCreateView(name, attrs);
+    }
+}
@@ -0,0 +1,46 @@
+package com.maxml.datetime;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.LayoutInflater;
+
+import com.maxml.datetime.fragment.OnDateTimeSetListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Host activity whose layout inflations are recorded in {@link #inflated}, and which forwards
+ * picker results to {@link #factory}.
+ */
+public class InstrumentedActivity extends AppCompatActivity implements OnDateTimeSetListener {
+
+    final List<Integer> inflated = new ArrayList<Integer>();
+    DateTimeFactory factory;
+    private LayoutInflater inflater;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        setTheme(R.style.AppTheme);
+        super.onCreate(savedInstanceState);
+    }
+
+    @Override
+    public Object getSystemService(String name) {
+        if (LAYOUT_INFLATER_SERVICE.equals(name)) {
+            if (inflater == null) {
+                inflater = new CountingLayoutInflater(
+                        (LayoutInflater) super.getSystemService(name), this, inflated);
+            }
+            return inflater;
+        }
+        return super.getSystemService(name);
+    }
+
+    @Override
+    public void onDateTimeSet(String tag, long millis) {
+        if (factory != null) {
+            factory.onDateTimeSet(tag, millis);
+        }
+    }
+}
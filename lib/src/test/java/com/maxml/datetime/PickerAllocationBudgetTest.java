@@ -0,0 +1,91 @@
+package com.maxml.datetime;
+
+import android.app.Activity;
+import android.view.View;
+
+import com.maxml.datetime.dialog.TimePickerDialog;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Fails when changing the time of an open {@link TimePickerDialog} allocates more than budgeted
+ * below, as counted by the allocation counter of the JVM running the test. Skipped on JVMs
+ * without one. Raise the budget only together with the change that needs it.
+ * <p>
+ * Every change invalidates one wheel, and the framework under test allocates for that on its
+ * own, so the cost of invalidating a plain {@link View} is measured alongside and subtracted.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class PickerAllocationBudgetTest {
+
+    // bytes allocated per time change on top of one invalidate, averaged after warm-up
+    private static final long BYTES_PER_TIME_CHANGE = 64;
+    private static final int ROUNDS = 1000;
+
+    private com.sun.management.ThreadMXBean allocations;
+
+    @Before
+    public void setUp() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void timeChange_allocationsWithinBudget() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        TimePickerDialog dialog = new TimePickerDialog(activity, null, 0, 0, 0, true);
+        dialog.setShowMilliseconds(true);
+        dialog.show();
+        final TimePickerDialog.TimePicker picker =
+                (TimePickerDialog.TimePicker) dialog.findViewById(R.id.timePicker);
+        final View plain = new View(activity);
+
+        long perChange = bytesPerRound(new Round() {
+            @Override
+            public void run(int i) {
+                picker.setCurrentMinute(i % 60);
+                picker.setCurrentMillis(i % 1000);
+            }
+        }) / 2;
+        long perInvalidate = bytesPerRound(new Round() {
+            @Override
+            public void run(int i) {
+                plain.invalidate();
+            }
+        });
+        assertTrue("bytes per time change: " + perChange + ", per invalidate: " + perInvalidate,
+                perChange - perInvalidate <= BYTES_PER_TIME_CHANGE);
+    }
+
+    // warms up, then measures the same rounds
+    private long bytesPerRound(Round round) {
+        for (int i = 0; i < ROUNDS; i++) {
+            round.run(i);
+        }
+        long thread = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ROUNDS; i++) {
+            round.run(i);
+        }
+        return (allocations.getThreadAllocatedBytes(thread) - before) / ROUNDS;
+    }
+
+    private interface Round {
+        void run(int i);
+    }
+}
@@ -0,0 +1,211 @@
+package com.maxml.datetime;
+
+import android.app.Dialog;
+import android.content.DialogInterface;
+import android.support.v4.app.DialogFragment;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.TextView;
+
+import com.afollestad.materialdialogs.MaterialDialog;
+import com.maxml.datetime.dialog.DatePickerDialog;
+import com.maxml.datetime.dialog.TimePickerDialog;
+import com.maxml.datetime.util.DateFormatter;
+import com.maxml.datetime.util.ParseCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowDialog;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the pick-date-then-time flow of {@link DateTimeFactory} headlessly, through the same
+ * list and buttons a user clicks, and fails when an interaction costs more layout inflations,
+ * listener dispatches or {@link DateFormatter} calls than budgeted below. Raise a budget only
+ * together with the change that needs it.
+ * <p>
+ * Parses are counted as lookups in parse caches installed for the test. The flow formats only
+ * to update the date view, so formats are counted as text updates.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class PickerFlowBudgetTest {
+
+    // library layouts inflated when a picker dialog opens
+    private static final int DATE_DIALOG_INFLATIONS = 0;
+    private static final int TIME_DIALOG_INFLATIONS = 2;
+
+    // listener dispatches
+    private static final int TIME_CHANGED_PER_SET = 1;
+    private static final int TEXT_UPDATES_PER_PICK = 1;
+
+    // DateFormatter parses
+    private static final int PARSES_PER_PICK = 0;
+    private static final int PARSES_OPEN_WITH_DATE = 1;
+
+    // rows of R.array.dialog_array_exit
+    private static final int CHOICE_DATE = 0;
+    private static final int CHOICE_TIME = 1;
+
+    private static final List<Integer> LIBRARY_LAYOUTS =
+            Arrays.asList(R.layout.time_picker_dialog, R.layout.time_picker_widget);
+
+    private InstrumentedActivity activity;
+    private TextView dateView;
+    private int textUpdates;
+    private ParseCache parseCache;
+    private ParseCache uiParseCache;
+    private long parsesBefore;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.setupActivity(InstrumentedActivity.class);
+        dateView = new TextView(activity);
+        dateView.setText(R.string.main_no_date);
+        dateView.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                textUpdates++;
+            }
+        });
+        parseCache = new ParseCache(ParseCache.SHARDS);
+        uiParseCache = new ParseCache(ParseCache.SHARDS);
+        DateFormatter.setParseCache(parseCache);
+        DateFormatter.setUiParseCache(uiParseCache);
+    }
+
+    @After
+    public void tearDown() {
+        DateFormatter.setParseCache(null);
+        DateFormatter.setUiParseCache(null);
+    }
+
+    @Test
+    public void pickDateThenTime_staysWithinBudgets() {
+        DateTimeFactory factory = new DateTimeFactory(activity, dateView);
+        activity.factory = factory;
+        factory.start();
+
+        // date
+        resetCounters();
+        choose(CHOICE_DATE);
+        DatePickerDialog dateDialog = (DatePickerDialog) pickerDialog(DateTimeFactory.TAG_DATE);
+        assertEquals("inflations opening the date dialog",
+                DATE_DIALOG_INFLATIONS, libraryInflations());
+
+        dateDialog.getMonthView().setDate(2016, 6, 27);
+        clickSet(dateDialog);
+        assertEquals("text updates per date pick", TEXT_UPDATES_PER_PICK, textUpdates);
+        assertEquals("DateFormatter parses per date pick", PARSES_PER_PICK, parses());
+        assertTrue(dateView.getText().toString().startsWith("2016-07-27"));
+
+        // time
+        resetCounters();
+        choose(CHOICE_TIME);
+        TimePickerDialog timeDialog = (TimePickerDialog) pickerDialog(DateTimeFactory.TAG_TIME);
+        assertEquals("inflations opening the time dialog",
+                TIME_DIALOG_INFLATIONS, libraryInflations());
+
+        TimePickerDialog.TimePicker picker =
+                (TimePickerDialog.TimePicker) timeDialog.findViewById(R.id.timePicker);
+        final int[] timeChanged = new int[1];
+        picker.setOnTimeChangedListener(new TimePickerDialog.OnTimeChangedListener() {
+            @Override
+            public void onTimeChanged(TimePickerDialog.TimePicker view, int hourOfDay, int minute, int seconds) {
+                timeChanged[0]++;
+            }
+        });
+        picker.setCurrentHour(10);
+        picker.setCurrentMinute(20);
+        picker.setCurrentSecond(30);
+        picker.setCurrentMillis(400);
+        assertEquals("onTimeChanged dispatches for 4 changes",
+                4 * TIME_CHANGED_PER_SET, timeChanged[0]);
+
+        clickSet(timeDialog);
+        assertEquals("text updates per time pick", TEXT_UPDATES_PER_PICK, textUpdates);
+        assertEquals("DateFormatter parses per time pick", PARSES_PER_PICK, parses());
+        assertTrue(dateView.getText().toString(),
+                dateView.getText().toString().startsWith("2016-07-27 10:20:30.400"));
+    }
+
+    @Test
+    public void reopenWithDate_parsesOnce() {
+        dateView.setText("2016-07-27 15:48:06.158 GMT");
+        resetCounters();
+
+        new DateTimeFactory(activity, dateView).start();
+        assertEquals("DateFormatter parses opening with a date", PARSES_OPEN_WITH_DATE, parses());
+        assertEquals("text updates opening with a date", 0, textUpdates);
+    }
+
+    /**
+     * Clicks a row of the list of choices, which must be the latest dialog.
+     */
+    private static void choose(int position) {
+        RecyclerView list = ((MaterialDialog) ShadowDialog.getLatestDialog()).getRecyclerView();
+        // Robolectric does not lay out windows, and the list binds its rows during layout
+        list.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+        list.layout(0, 0, 480, 800);
+        list.findViewHolderForAdapterPosition(position).itemView.performClick();
+        ShadowLooper.idleMainLooper();
+    }
+
+    private Dialog pickerDialog(String tag) {
+        activity.getSupportFragmentManager().executePendingTransactions();
+        return ((DialogFragment) activity.getSupportFragmentManager().findFragmentByTag(tag))
+                .getDialog();
+    }
+
+    private void clickSet(Dialog dialog) {
+        ((android.app.AlertDialog) dialog).getButton(DialogInterface.BUTTON_POSITIVE).performClick();
+        ShadowLooper.idleMainLooper();
+    }
+
+    private void resetCounters() {
+        activity.inflated.clear();
+        parsesBefore = parseCount();
+        textUpdates = 0;
+    }
+
+    private long parses() {
+        return parseCount() - parsesBefore;
+    }
+
+    private long parseCount() {
+        return parseCache.hitCount() + parseCache.missCount()
+                + uiParseCache.hitCount() + uiParseCache.missCount();
+    }
+
+    private int libraryInflations() {
+        int count = 0;
+        for (Integer layout : activity.inflated) {
+            if (LIBRARY_LAYOUTS.contains(layout)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
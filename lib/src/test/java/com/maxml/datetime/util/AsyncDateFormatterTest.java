@@ -0,0 +1,210 @@
+package com.maxml.datetime.util;
+
+import com.maxml.datetime.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link AsyncDateFormatter} computes identical requests once, delivers results in
+ * the order they were asked for, and answers every callback exactly once, also when requests
+ * are dropped or the executor rejects them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class AsyncDateFormatterTest {
+
+    private static final String TEXT = "2016-07-27 15:48:06.158";
+    private static final long MILLIS = 1469634486158L;
+
+    private ManualExecutor executor;
+    private AsyncDateFormatter formatter;
+    private ParseCache parseCache;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        executor = new ManualExecutor();
+        formatter = new AsyncDateFormatter(executor);
+        parseCache = new ParseCache(ParseCache.SHARDS);
+        DateFormatter.setParseCache(parseCache);
+    }
+
+    @After
+    public void tearDown() {
+        DateFormatter.setParseCache(null);
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void identicalRequests_computeOnce() {
+        Results<Date> first = new Results<Date>();
+        Results<Date> second = new Results<Date>();
+        formatter.parse(TEXT, first);
+        formatter.parse(TEXT, second);
+        formatter.parse(TEXT, second);
+        assertEquals("one batch for all three", 1, executor.tasks.size());
+
+        executor.open();
+        ShadowLooper.idleMainLooper();
+        assertEquals(1, parseCache.hitCount() + parseCache.missCount());
+        assertEquals(1, first.values.size());
+        assertEquals(2, second.values.size());
+        assertEquals(MILLIS, first.values.get(0).getTime());
+        assertEquals(MILLIS, second.values.get(1).getTime());
+        // every callback gets its own Date
+        assertNotSame(first.values.get(0), second.values.get(0));
+        assertNotSame(second.values.get(0), second.values.get(1));
+    }
+
+    @Test
+    public void results_arriveInRequestOrder() {
+        final List<Integer> order = new ArrayList<Integer>();
+        int count = 3 * AsyncDateFormatter.MAX_BATCH + 1;
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            formatter.format(new Date(MILLIS + i), new AsyncDateFormatter.Callback<String>() {
+                @Override
+                public void onResult(String result) {
+                    assertEquals(DateFormatter.toString(new Date(MILLIS + index)), result);
+                    order.add(index);
+                }
+            });
+        }
+
+        // the batches after the first run as soon as they are scheduled
+        executor.open();
+        ShadowLooper.idleMainLooper();
+        assertEquals(count, order.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+
+    @Test
+    public void queue_dropsTheOldestBeyondItsCap() {
+        List<Results<String>> results = new ArrayList<Results<String>>();
+        int count = AsyncDateFormatter.MAX_PENDING + 3;
+        for (int i = 0; i < count; i++) {
+            Results<String> result = new Results<String>();
+            formatter.formatUi(new Date(MILLIS + i), result);
+            results.add(result);
+        }
+
+        ShadowLooper.idleMainLooper();
+        for (int i = 0; i < count; i++) {
+            assertEquals("request " + i, i < 3 ? 1 : 0, results.get(i).values.size());
+        }
+        assertNull(results.get(0).values.get(0));
+
+        executor.open();
+        ShadowLooper.idleMainLooper();
+        for (int i = 0; i < count; i++) {
+            assertEquals("request " + i, 1, results.get(i).values.size());
+        }
+        assertEquals(DateFormatter.toUiString(new Date(MILLIS + count - 1)),
+                results.get(count - 1).values.get(0));
+    }
+
+    @Test
+    public void rejectedBatch_failsTheQueuedRequests() {
+        executor.reject = true;
+        Results<Date> rejected = new Results<Date>();
+        formatter.parse(TEXT, rejected);
+        formatter.parseUi(TEXT + " GMT", rejected);
+        ShadowLooper.idleMainLooper();
+        assertEquals(2, rejected.values.size());
+        assertNull(rejected.values.get(0));
+        assertNull(rejected.values.get(1));
+
+        // the next request schedules a batch again
+        executor.reject = false;
+        Results<Date> accepted = new Results<Date>();
+        formatter.parse(TEXT, accepted);
+        executor.open();
+        ShadowLooper.idleMainLooper();
+        assertEquals(1, accepted.values.size());
+        assertEquals(MILLIS, accepted.values.get(0).getTime());
+        assertEquals(2, rejected.values.size());
+    }
+
+    @Test
+    public void executor_isCalledWithoutTheLock() {
+        // runs each batch on another thread and waits for it
+        formatter = new AsyncDateFormatter(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                Thread worker = new Thread(command);
+                worker.setDaemon(true);
+                worker.start();
+                try {
+                    worker.join(10000);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                assertFalse("batch blocked on the lock", worker.isAlive());
+            }
+        });
+        Results<Date> results = new Results<Date>();
+        formatter.parse(TEXT, results);
+
+        ShadowLooper.idleMainLooper();
+        assertEquals(1, results.values.size());
+        assertTrue(results.values.get(0) != null);
+    }
+
+    private static final class ManualExecutor implements Executor {
+
+        final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+        boolean reject;
+        private boolean open;
+
+        @Override
+        public void execute(Runnable command) {
+            if (reject) {
+                throw new RejectedExecutionException();
+            }
+            if (open) {
+                command.run();
+            } else {
+                tasks.add(command);
+            }
+        }
+
+        // runs the queued batches, and any later one right away
+        void open() {
+            open = true;
+            while (!tasks.isEmpty()) {
+                tasks.removeFirst().run();
+            }
+        }
+    }
+
+    private static final class Results<T> implements AsyncDateFormatter.Callback<T> {
+
+        final List<T> values = new ArrayList<T>();
+
+        @Override
+        public void onResult(T result) {
+            values.add(result);
+        }
+    }
+}
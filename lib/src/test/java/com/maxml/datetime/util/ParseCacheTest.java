@@ -0,0 +1,146 @@
+package com.maxml.datetime.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the per-shard capacity and LRU order of {@link ParseCache}, and that its hit, miss
+ * and eviction counters account for every lookup, including uncacheable keys.
+ */
+public class ParseCacheTest {
+
+    @Test
+    public void maxSize_isAMultipleOfTheShards() {
+        assertEquals(16, new ParseCache(23).maxSize());
+        assertEquals(ParseCache.SHARDS, new ParseCache(ParseCache.SHARDS).maxSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxSize_atLeastOnePerShard() {
+        new ParseCache(ParseCache.SHARDS - 1);
+    }
+
+    @Test
+    public void size_staysBoundedUnderDistinctKeys() {
+        ParseCache cache = new ParseCache(64);
+        for (int i = 0; i < 100000; i++) {
+            cache.put("2016-07-27 15:48:06." + i, i);
+            assertTrue(cache.size() <= cache.maxSize());
+        }
+        assertEquals(cache.maxSize(), cache.size());
+        assertEquals(100000 - cache.maxSize(), cache.evictionCount());
+    }
+
+    @Test
+    public void shard_evictsLeastRecentlyUsed() {
+        List<String> keys = keysOfOneShard(3);
+        String a = keys.get(0);
+        String b = keys.get(1);
+        String c = keys.get(2);
+
+        // two entries per shard
+        ParseCache cache = new ParseCache(2 * ParseCache.SHARDS);
+        cache.put(a, 1);
+        cache.put(b, 2);
+        assertEquals(Long.valueOf(1), cache.get(a));
+        cache.put(c, 3);
+
+        assertEquals(1, cache.evictionCount());
+        assertNull(cache.get(b));
+        assertEquals(Long.valueOf(1), cache.get(a));
+        assertEquals(Long.valueOf(3), cache.get(c));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void counters_countEveryLookup() {
+        ParseCache cache = new ParseCache(ParseCache.SHARDS);
+        String tooLong = new String(new char[ParseCache.MAX_KEY_LENGTH + 1]).replace('\0', '1');
+
+        assertNull(cache.get(null));
+        cache.put(tooLong, 1);
+        assertNull(cache.get(tooLong));
+        assertNull(cache.get("2016-07-27 15:48:06.158"));
+        cache.put("2016-07-27 15:48:06.158", 1469634486158L);
+        assertEquals(Long.valueOf(1469634486158L), cache.get("2016-07-27 15:48:06.158"));
+        assertEquals(Long.valueOf(1469634486158L), cache.get("2016-07-27 15:48:06.158"));
+
+        assertEquals(2, cache.hitCount());
+        assertEquals(3, cache.missCount());
+        assertEquals(0, cache.evictionCount());
+        assertEquals(1, cache.size());
+        assertEquals("ParseCache[size=1,maxSize=8,hits=2,misses=3,hitRate=40%]", cache.toString());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get("2016-07-27 15:48:06.158"));
+        assertEquals(4, cache.missCount());
+    }
+
+    @Test
+    public void counters_stayExactUnderContention() throws InterruptedException {
+        final ParseCache cache = new ParseCache(32);
+        final int threads = 4;
+        final int lookups = 20000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < lookups; i++) {
+                            String key = "key" + ((i * 31 + seed) % 100);
+                            Long millis = cache.get(key);
+                            if (millis == null) {
+                                cache.put(key, key.hashCode());
+                            } else if (millis != key.hashCode()) {
+                                throw new AssertionError(key + " -> " + millis);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(threads * lookups, cache.hitCount() + cache.missCount());
+        assertTrue(cache.size() <= cache.maxSize());
+    }
+
+    // finds keys of one shard through a cache holding one entry per shard
+    private static List<String> keysOfOneShard(int count) {
+        List<String> keys = new ArrayList<String>();
+        String first = "2016-07-27 15:48:06.000";
+        keys.add(first);
+        for (int i = 1; keys.size() < count; i++) {
+            String candidate = "2016-07-27 15:48:06." + i;
+            ParseCache probe = new ParseCache(ParseCache.SHARDS);
+            probe.put(first, 0);
+            probe.put(candidate, i);
+            if (probe.get(first) == null) {
+                keys.add(candidate);
+            }
+        }
+        return keys;
+    }
+}
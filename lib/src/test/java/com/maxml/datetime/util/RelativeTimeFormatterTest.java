@@ -0,0 +1,104 @@
+package com.maxml.datetime.util;
+
+import com.maxml.datetime.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pins down where the buckets of {@link RelativeTimeFormatter} change, and that
+ * {@link RelativeTimeFormatter#nextBoundary(long, long)} is exactly the first such change.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RelativeTimeFormatterTest {
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = DateMath.MILLIS_PER_MINUTE;
+    private static final long HOUR = DateMath.MILLIS_PER_HOUR;
+    private static final long DAY = DateMath.MILLIS_PER_DAY;
+
+    // 2016-07-27 15:48:06.158 GMT
+    private static final long NOW = 1469634486158L;
+
+    private RelativeTimeFormatter formatter;
+
+    @Before
+    public void setUp() {
+        formatter = new RelativeTimeFormatter(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void minute_startsAtExactlySixtySeconds() {
+        int justNow = formatter.bucketKey(NOW, NOW);
+        assertEquals(justNow, formatter.bucketKey(NOW - MINUTE + 1, NOW));
+        assertEquals(justNow, formatter.bucketKey(NOW + MINUTE - 1, NOW));
+        assertNotEquals(justNow, formatter.bucketKey(NOW - MINUTE, NOW));
+        assertNotEquals(justNow, formatter.bucketKey(NOW + MINUTE, NOW));
+        assertNotEquals(formatter.bucketKey(NOW - MINUTE, NOW), formatter.bucketKey(NOW + MINUTE, NOW));
+
+        assertEquals(NOW + MINUTE, formatter.nextBoundary(NOW, NOW));
+        assertEquals(NOW + MINUTE, formatter.nextBoundary(NOW, NOW + MINUTE - 1));
+        // "in 1 minute" turns into "just now" one millisecond later
+        assertEquals(NOW + 1, formatter.nextBoundary(NOW + MINUTE, NOW));
+    }
+
+    @Test
+    public void hour_startsAtExactlySixtyMinutes() {
+        long instant = NOW - HOUR;
+        assertEquals(formatter.bucketKey(instant, NOW), formatter.bucketKey(NOW - HOUR - 59 * MINUTE, NOW));
+        assertNotEquals(formatter.bucketKey(instant, NOW), formatter.bucketKey(NOW - HOUR + 1, NOW));
+        assertEquals(formatter.bucketKey(NOW - 59 * MINUTE, NOW), formatter.bucketKey(NOW - HOUR + 1, NOW));
+
+        // "59 minutes ago" lasts until the hour is full, not until minute 60
+        assertEquals(instant + HOUR, formatter.nextBoundary(instant, instant + 59 * MINUTE + SECOND));
+        assertEquals(instant + 2 * HOUR, formatter.nextBoundary(instant, NOW));
+        assertEquals(NOW + 1, formatter.nextBoundary(NOW + HOUR, NOW));
+    }
+
+    @Test
+    public void day_rollsOverAfterTwentyFourHours() {
+        long instant = NOW - DAY;
+        assertNotEquals(formatter.bucketKey(instant, NOW), formatter.bucketKey(instant + 1, NOW));
+        assertEquals(formatter.bucketKey(NOW - 23 * HOUR, NOW), formatter.bucketKey(instant + 1, NOW));
+
+        assertEquals(NOW, formatter.nextBoundary(instant, NOW - 1));
+        assertEquals(NOW + DAY, formatter.nextBoundary(instant, NOW));
+        // "in 1 day" turns into "in 23 hours"
+        assertEquals(NOW + HOUR + 1, formatter.nextBoundary(NOW + DAY + HOUR, NOW));
+        assertEquals(NOW + 1, formatter.nextBoundary(NOW + DAY, NOW));
+    }
+
+    @Test
+    public void nextBoundary_isTheFirstChange() {
+        Random random = new Random(28);
+        for (int i = 0; i < 20000; i++) {
+            // up to two years either way, biased towards the short units
+            long distance = (long) (Math.pow(random.nextDouble(), 4) * 730 * DAY);
+            long instant = random.nextBoolean() ? NOW - distance : NOW + distance;
+            long boundary = formatter.nextBoundary(instant, NOW);
+            String message = "instant " + instant + " boundary " + boundary;
+            assertTrue(message, boundary > NOW);
+            int key = formatter.bucketKey(instant, NOW);
+            assertEquals(message, key, formatter.bucketKey(instant, boundary - 1));
+            assertNotEquals(message, key, formatter.bucketKey(instant, boundary));
+        }
+    }
+
+    @Test
+    public void nextBoundary_ofManyIsTheEarliest() {
+        long[] instants = {NOW - DAY, NOW + HOUR, NOW - 30 * SECOND};
+        assertEquals(NOW + 1, formatter.nextBoundary(instants, NOW));
+        assertEquals(Long.MAX_VALUE, formatter.nextBoundary(new long[0], NOW));
+    }
+}
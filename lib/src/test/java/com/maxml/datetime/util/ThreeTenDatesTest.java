@@ -0,0 +1,95 @@
+package com.maxml.datetime.util;
+
+import org.junit.Test;
+import org.threeten.bp.Instant;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneOffset;
+
+import java.util.Date;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Round-trips instants between {@link ThreeTenDates} and {@link DateFormatter}, and pins down
+ * where the two deliberately differ. Only {@link ZoneOffset}s are used, the ThreeTen build on
+ * the test classpath has no zone database.
+ */
+public class ThreeTenDatesTest {
+
+    // 1582-10-15, the first Gregorian day, to the end of 9999
+    private static final long MIN_MILLIS = -12219292800000L;
+    private static final long MAX_MILLIS = 253402300799999L;
+    private static final int ROUNDS = 20000;
+
+    private static final String JULY_27 = "2016-07-27 15:48:06.158";
+    private static final long JULY_27_MILLIS = 1469634486158L;
+
+    @Test
+    public void format_matchesDateFormatter() {
+        Random random = new Random(36);
+        for (int i = 0; i < ROUNDS; i++) {
+            long millis = randomMillis(random);
+            Instant instant = ThreeTenDates.toInstant(millis);
+            assertEquals(DateFormatter.toString(new Date(millis)), ThreeTenDates.format(instant));
+            assertEquals(DateFormatter.toUiString(new Date(millis)), ThreeTenDates.formatUi(instant));
+        }
+    }
+
+    @Test
+    public void strings_roundTripThroughDateFormatter() {
+        Random random = new Random(158);
+        for (int i = 0; i < ROUNDS; i++) {
+            long millis = randomMillis(random);
+            Instant instant = ThreeTenDates.toInstant(millis);
+
+            String text = DateFormatter.toString(new Date(millis));
+            assertEquals(text, instant, ThreeTenDates.parseInstant(text));
+            assertEquals(text, millis, DateFormatter.toDate(ThreeTenDates.format(instant)).getTime());
+
+            text = DateFormatter.toUiString(new Date(millis));
+            assertEquals(text, instant, ThreeTenDates.parseUiInstant(text));
+            assertEquals(text, millis,
+                    DateFormatter.fromUIStringToDate(ThreeTenDates.formatUi(instant)).getTime());
+        }
+    }
+
+    @Test
+    public void localDateTime_roundTripsInOffsets() {
+        Random random = new Random(7);
+        for (int i = 0; i < ROUNDS / 10; i++) {
+            long millis = randomMillis(random);
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds((random.nextInt(37) - 18) * 1800);
+            LocalDateTime local = ThreeTenDates.toLocalDateTime(millis, offset);
+            assertEquals(offset + " " + local, millis, ThreeTenDates.toMillis(local, offset));
+        }
+        assertEquals(LocalDateTime.of(2016, 7, 27, 21, 18, 6, 158000000),
+                ThreeTenDates.parseLocalDateTime(JULY_27, ZoneOffset.ofHoursMinutes(5, 30)));
+    }
+
+    @Test
+    public void parse_rejectsWhatDateFormatterRollsOver() {
+        assertNull(ThreeTenDates.parseInstant("2016-02-30 00:00:00.000"));
+        assertNull(ThreeTenDates.parseUiInstant("2016-07-27 24:00:00.000 GMT"));
+        assertNull(ThreeTenDates.parseInstant(JULY_27 + "0"));
+        assertEquals(JULY_27_MILLIS, ThreeTenDates.parseUiInstant(JULY_27 + " GMT+00:00").toEpochMilli());
+    }
+
+    @Test
+    public void beforeGregorian_isProleptic() {
+        // DateFormatter switches to the Julian calendar here, ten days behind by 1582
+        long millis = DateMath.daysFromCivil(1582, 10, 4) * DateMath.MILLIS_PER_DAY;
+        Instant instant = ThreeTenDates.toInstant(millis);
+        assertEquals("1582-10-04 00:00:00.000", ThreeTenDates.format(instant));
+        assertEquals("1582-09-24 00:00:00.000", DateFormatter.toString(new Date(millis)));
+
+        String text = "1582-10-04 00:00:00.000";
+        assertEquals(millis, ThreeTenDates.parseInstant(text).toEpochMilli());
+        assertEquals(millis + 10 * DateMath.MILLIS_PER_DAY, DateFormatter.toDate(text).getTime());
+    }
+
+    private static long randomMillis(Random random) {
+        return MIN_MILLIS + (long) (random.nextDouble() * (MAX_MILLIS - MIN_MILLIS));
+    }
+}
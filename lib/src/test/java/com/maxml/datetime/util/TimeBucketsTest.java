@@ -0,0 +1,201 @@
+package com.maxml.datetime.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares {@link TimeBuckets} with the fields of a {@link Calendar}, around DST gaps and
+ * overlaps, and the parallel histogram with the serial one.
+ */
+public class TimeBucketsTest {
+
+    private static final String[] ZONES = {"UTC", "Europe/Berlin", "America/Sao_Paulo",
+            "Australia/Lord_Howe", "Asia/Kolkata"};
+    private static final int[] UNITS = {TimeBuckets.HOUR, TimeBuckets.DAY, TimeBuckets.WEEK,
+            TimeBuckets.MONTH};
+
+    // 1990-01-01 to 2030-01-01
+    private static final long FROM_MILLIS = 631152000000L;
+    private static final long TO_MILLIS = 1893456000000L;
+    private static final int ROUNDS = 5000;
+
+    @Test
+    public void bucketOf_matchesCalendarFields() {
+        Random random = new Random(26);
+        for (String id : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            TimeBuckets hours = new TimeBuckets(TimeBuckets.HOUR, zone);
+            TimeBuckets days = new TimeBuckets(TimeBuckets.DAY, zone);
+            TimeBuckets months = new TimeBuckets(TimeBuckets.MONTH, zone);
+            Calendar calendar = new GregorianCalendar(zone);
+            for (int i = 0; i < ROUNDS; i++) {
+                long millis = randomMillis(random);
+                calendar.setTimeInMillis(millis);
+                long day = localDay(calendar);
+                String message = id + " " + calendar.getTime();
+                assertEquals(message, day * 24 + calendar.get(Calendar.HOUR_OF_DAY), hours.bucketOf(millis));
+                assertEquals(message, day, days.bucketOf(millis));
+                assertEquals(message, (calendar.get(Calendar.YEAR) - 1970) * 12L
+                        + calendar.get(Calendar.MONTH), months.bucketOf(millis));
+            }
+        }
+    }
+
+    @Test
+    public void weeks_startOnTheFirstDayOfWeek() {
+        Random random = new Random(7);
+        for (String id : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            Calendar calendar = new GregorianCalendar(zone);
+            Calendar start = new GregorianCalendar(zone);
+            for (int firstDay = Calendar.SUNDAY; firstDay <= Calendar.SATURDAY; firstDay++) {
+                TimeBuckets weeks = new TimeBuckets(TimeBuckets.WEEK, zone, firstDay);
+                for (int i = 0; i < ROUNDS / 7; i++) {
+                    long millis = randomMillis(random);
+                    calendar.setTimeInMillis(millis);
+                    start.setTimeInMillis(weeks.bucketStart(weeks.bucketOf(millis)));
+                    String message = id + " " + calendar.getTime() + " first day " + firstDay;
+                    assertEquals(message, firstDay, start.get(Calendar.DAY_OF_WEEK));
+                    long daysIntoWeek = localDay(calendar) - localDay(start);
+                    assertTrue(message, daysIntoWeek >= 0 && daysIntoWeek < 7);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void buckets_containTheirInstants() {
+        Random random = new Random(1);
+        for (String id : ZONES) {
+            for (int unit : UNITS) {
+                TimeBuckets buckets = new TimeBuckets(unit, TimeZone.getTimeZone(id));
+                for (int i = 0; i < ROUNDS / 4; i++) {
+                    long millis = randomMillis(random);
+                    long bucket = buckets.bucketOf(millis);
+                    String message = id + " unit " + unit + " " + millis;
+                    assertTrue(message, buckets.bucketStart(bucket) <= millis);
+                    assertTrue(message, millis < buckets.bucketStart(bucket + 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void gap_startsBucketAfterTheGap() {
+        // Sao Paulo skipped 2015-10-18 00:00 to 01:00
+        TimeZone zone = TimeZone.getTimeZone("America/Sao_Paulo");
+        TimeBuckets days = new TimeBuckets(TimeBuckets.DAY, zone);
+        TimeBuckets hours = new TimeBuckets(TimeBuckets.HOUR, zone);
+        long oneAm = 1445137200000L; // 2015-10-18T03:00Z
+        assertEquals(oneAm, days.bucketStart(days.bucketOf(oneAm)));
+
+        // the skipped hour is an empty bucket
+        long hour = hours.bucketOf(oneAm);
+        assertEquals(oneAm, hours.bucketStart(hour));
+        assertEquals(oneAm, hours.bucketStart(hour - 1));
+        assertEquals(hour - 2, hours.bucketOf(oneAm - 1));
+    }
+
+    @Test
+    public void overlap_sharesOneBucket() {
+        // Berlin repeated 02:00 to 03:00 on 2015-10-25, first in CEST then in CET
+        TimeBuckets hours = new TimeBuckets(TimeBuckets.HOUR, TimeZone.getTimeZone("Europe/Berlin"));
+        long firstHalfPast = 1445733000000L; // 00:30Z
+        long secondHalfPast = firstHalfPast + DateMath.MILLIS_PER_HOUR;
+        long bucket = hours.bucketOf(firstHalfPast);
+        assertEquals(bucket, hours.bucketOf(secondHalfPast));
+        assertEquals(firstHalfPast - 30 * DateMath.MILLIS_PER_MINUTE, hours.bucketStart(bucket));
+        assertEquals(secondHalfPast + 30 * DateMath.MILLIS_PER_MINUTE, hours.bucketStart(bucket + 1));
+    }
+
+    @Test
+    public void histogram_countsAndIgnoresOutOfRange() {
+        TimeBuckets days = new TimeBuckets(TimeBuckets.DAY, TimeZone.getTimeZone("UTC"));
+        long[] millis = {-1, 0, 1, DateMath.MILLIS_PER_DAY, 2 * DateMath.MILLIS_PER_DAY + 5,
+                3 * DateMath.MILLIS_PER_DAY};
+        assertArrayEquals(new int[]{2, 1, 1}, days.histogram(millis, 0, 3));
+        assertArrayEquals(new int[]{1, 2}, days.histogram(millis, -1, 2));
+    }
+
+    @Test
+    public void parallelHistogram_matchesSerial() throws InterruptedException {
+        Random random = new Random(3);
+        long[] millis = new long[300000];
+        for (int i = 0; i < millis.length; i++) {
+            millis[i] = randomMillis(random);
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(3, 3, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        try {
+            for (int unit : UNITS) {
+                TimeBuckets buckets = new TimeBuckets(unit, TimeZone.getTimeZone("Europe/Berlin"));
+                long from = buckets.bucketOf(FROM_MILLIS) + 3;
+                int count = (int) (buckets.bucketOf(TO_MILLIS) - from - 5);
+                int[] serial = buckets.histogram(millis, from, count);
+                assertTrue(Arrays.toString(serial), sum(serial) > 0 && sum(serial) < millis.length);
+                assertArrayEquals("unit " + unit, serial,
+                        buckets.histogram(millis, from, count, executor));
+            }
+            // five chunks per histogram
+            assertEquals(UNITS.length * 5, executor.getTaskCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void parallelHistogram_countsSmallInputsOnTheCallingThread() throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        try {
+            TimeBuckets hours = new TimeBuckets(TimeBuckets.HOUR, TimeZone.getTimeZone("UTC"));
+            assertArrayEquals(new int[]{1, 0}, hours.histogram(new long[]{0}, 0, 2, executor));
+            assertEquals(0, executor.getTaskCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownUnit() {
+        new TimeBuckets(TimeBuckets.MONTH + 1, TimeZone.getTimeZone("UTC"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownFirstDayOfWeek() {
+        new TimeBuckets(TimeBuckets.WEEK, TimeZone.getTimeZone("UTC"), 0);
+    }
+
+    // days since 1970-01-01 of the calendar's local date
+    private static long localDay(Calendar calendar) {
+        Calendar utc = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        utc.clear();
+        utc.set(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH),
+                calendar.get(Calendar.DAY_OF_MONTH));
+        return utc.getTimeInMillis() / DateMath.MILLIS_PER_DAY;
+    }
+
+    private static long randomMillis(Random random) {
+        return FROM_MILLIS + (long) (random.nextDouble() * (TO_MILLIS - FROM_MILLIS));
+    }
+
+    private static int sum(int[] counts) {
+        int sum = 0;
+        for (int count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+}